@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RevertingRecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import com.wallumsystems.sas.swagger.model.NoDateBaseRecord;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+// the same fixtures for every benchmark, so results stay comparable between versions
+final class BenchmarkRecords {
+
+    static final AccountEntity FROM_ACCOUNT = AccountEntity.builder().id(1L).name("Bank").build();
+
+    static final AccountEntity TO_ACCOUNT = AccountEntity.builder().id(2L).name("Revenue").build();
+
+    static final AccountEntity TAX_ACCOUNT = AccountEntity.builder().id(3L).name("Sales tax").build();
+
+    private static final LocalDate BOOKING_DATE = LocalDate.of(2022, 1, 31);
+
+    private BenchmarkRecords() {
+    }
+
+    static RecordEntity recordEntity(long id) {
+        return RecordEntity.builder()
+                .id(id)
+                .description("Invoice " + id)
+                .fromAccountEntity(FROM_ACCOUNT)
+                .toAccountEntity(TO_ACCOUNT)
+                .value(10000L + id)
+                .bookingDate(Date.valueOf(BOOKING_DATE))
+                .creationTime(Timestamp.valueOf(BOOKING_DATE.atStartOfDay()))
+                .build();
+    }
+
+    // a record with tax record that has been reverted, every reference of the converter is populated
+    static RecordEntity revertedRecordEntityWithTax(long id) {
+        RecordEntity recordEntity = recordEntity(id);
+        TaxRecordEntity taxRecord = TaxRecordEntity.builder()
+                .id(id + 1)
+                .fromAccountEntity(TO_ACCOUNT)
+                .toAccountEntity(TAX_ACCOUNT)
+                .value(1900L)
+                .bookingDate(recordEntity.getBookingDate())
+                .creationTime(recordEntity.getCreationTime())
+                .recordEntity(recordEntity)
+                .build();
+        recordEntity.setTaxRecord(taxRecord);
+        recordEntity.setRevertingRecord(RevertingRecordEntity.builder()
+                .id(id + 2)
+                .fromAccountEntity(FROM_ACCOUNT)
+                .toAccountEntity(TO_ACCOUNT)
+                .value(-recordEntity.getValue())
+                .bookingDate(recordEntity.getBookingDate())
+                .creationTime(recordEntity.getCreationTime())
+                .recordEntity(recordEntity)
+                .build());
+        return recordEntity;
+    }
+
+    static NewRecord newRecord(long index) {
+        return new NewRecord()
+                .description("Invoice " + index)
+                .fromAccountId(Math.toIntExact(FROM_ACCOUNT.getId()))
+                .toAccountId(Math.toIntExact(TO_ACCOUNT.getId()))
+                .amount(new BigDecimal("100.00").add(BigDecimal.valueOf(index, 2)))
+                .bookingDate(BOOKING_DATE);
+    }
+
+    static NewRecord newRecordWithTax(long index) {
+        return newRecord(index).taxRecord(new NoDateBaseRecord()
+                .description("Sales tax")
+                .fromAccountId(Math.toIntExact(TO_ACCOUNT.getId()))
+                .toAccountId(Math.toIntExact(TAX_ACCOUNT.getId()))
+                .amount(new BigDecimal("19.00")));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import com.wallumsystems.sas.swagger.model.Record;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ConverterBenchmark {
+
+    private EntityToComponentConverter entityToComponentConverter;
+
+    private RecordEntity recordEntity;
+
+    private RecordEntity revertedRecordEntityWithTax;
+
+    private NewRecord newRecord;
+
+    private NewRecord newRecordWithTax;
+
+    @Setup
+    public void setUp() {
+        AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        EntityManager entityManager = Mockito.mock(EntityManager.class);
+        for (AccountEntity accountEntity : List.of(BenchmarkRecords.FROM_ACCOUNT, BenchmarkRecords.TO_ACCOUNT, BenchmarkRecords.TAX_ACCOUNT)) {
+            Mockito.when(accountRepository.findById(accountEntity.getId())).thenReturn(Optional.of(accountEntity));
+            Mockito.when(entityManager.getReference(AccountEntity.class, accountEntity.getId())).thenReturn(accountEntity);
+        }
+        AccountCache accountCache = new AccountCache(entityManager, accountRepository, new SimpleMeterRegistry(), 10000);
+        // the converter is measured against a warm cache, as it runs in the service
+        accountCache.findAllById(List.of(1L, 2L, 3L));
+        entityToComponentConverter = new EntityToComponentConverter(accountCache);
+        recordEntity = BenchmarkRecords.recordEntity(100);
+        revertedRecordEntityWithTax = BenchmarkRecords.revertedRecordEntityWithTax(200);
+        newRecord = BenchmarkRecords.newRecord(1);
+        newRecordWithTax = BenchmarkRecords.newRecordWithTax(1);
+    }
+
+    @Benchmark
+    public Record recordEntityToRecord() {
+        return entityToComponentConverter.recordEntityToRecord(recordEntity);
+    }
+
+    @Benchmark
+    public Record revertedRecordEntityWithTaxToRecord() {
+        return entityToComponentConverter.recordEntityToRecord(revertedRecordEntityWithTax);
+    }
+
+    @Benchmark
+    public RecordEntity newRecordToRecordEntity() throws AccountEntityNotFoundException {
+        return entityToComponentConverter.newRecordToRecordEntity(newRecord);
+    }
+
+    @Benchmark
+    public RecordEntity newRecordWithTaxToRecordEntity() throws AccountEntityNotFoundException {
+        return entityToComponentConverter.newRecordToRecordEntity(newRecordWithTax);
+    }
+}
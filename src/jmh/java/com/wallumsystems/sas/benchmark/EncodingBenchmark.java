@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.swagger.model.Record;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// encode time per format, the payload sizes are printed once per fork during the setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class EncodingBenchmark {
+
+    @Param({"100", "10000"})
+    private int recordCount;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private String format;
+
+    private ObjectWriter recordListWriter;
+
+    private List<Record> records;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "CBOR" -> new CBORFactory();
+            case "SMILE" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        // configured like the mappers of the message converters in the application
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        recordListWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Record.class));
+        EntityToComponentConverter entityToComponentConverter = new EntityToComponentConverter(
+                new AccountCache(Mockito.mock(EntityManager.class), Mockito.mock(AccountRepository.class), new SimpleMeterRegistry(), 10000));
+        records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++)
+            records.add(entityToComponentConverter.recordEntityToRecord(i % 2 == 0
+                    ? BenchmarkRecords.recordEntity(i * 3L + 1)
+                    : BenchmarkRecords.revertedRecordEntityWithTax(i * 3L + 1)));
+        byte[] payload = writeRecordList();
+        System.out.printf("%s with %d records: %d bytes, %d bytes gzipped%n",
+                format, recordCount, payload.length, gzip(payload).length);
+    }
+
+    @Benchmark
+    public byte[] writeRecordList() throws IOException {
+        return recordListWriter.writeValueAsBytes(records);
+    }
+
+    // what server.compression adds on top of the encoding
+    @Benchmark
+    public byte[] writeRecordListGzipped() throws IOException {
+        return gzip(recordListWriter.writeValueAsBytes(records));
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(payload);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.wallumsystems.sas.benchmark;
+
+import com.wallumsystems.sas.SasApplication;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.service.RecordService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// compares posting a bulk chunk with and without JDBC batching; a batch size of 1 turns Hibernate's batching off.
+// H2 understates the gain, to measure MariaDB with rewriteBatchedStatements point -Djdbc.url, -Djdbc.username and
+// -Djdbc.password of the fork at an empty database, the schema is created and dropped
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecordBatchingBenchmark {
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private RecordService recordService;
+
+    private EntityToComponentConverter entityToComponentConverter;
+
+    private long chunkIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("jdbc.url");
+        applicationContext = new SpringApplicationBuilder(SasApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + (url != null ? url
+                                : "jdbc:h2:mem:batching-" + jdbcBatchSize + ";MODE=MySQL;DB_CLOSE_DELAY=-1"),
+                        "spring.datasource.username=" + System.getProperty("jdbc.username", "sa"),
+                        "spring.datasource.password=" + System.getProperty("jdbc.password", ""),
+                        "spring.datasource.driver-class-name=" + (url != null ? "org.mariadb.jdbc.Driver" : "org.h2.Driver"),
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "sas.reporting.enabled=false",
+                        "sas.recurring.fixed-delay=3600000",
+                        "sas.receipts.directory=target/benchmark-receipts")
+                .run();
+        recordService = applicationContext.getBean(RecordService.class);
+        entityToComponentConverter = applicationContext.getBean(EntityToComponentConverter.class);
+
+        AccountRepository accountRepository = applicationContext.getBean(AccountRepository.class);
+        for (AccountEntity accountEntity : List.of(BenchmarkRecords.FROM_ACCOUNT, BenchmarkRecords.TO_ACCOUNT, BenchmarkRecords.TAX_ACCOUNT)) {
+            AccountEntity savedAccount = accountRepository.save(AccountEntity.builder().name(accountEntity.getName()).build());
+            // the fixtures refer to the accounts by id
+            if (!savedAccount.getId().equals(accountEntity.getId()))
+                throw new IllegalStateException("Unexpected account id " + savedAccount.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    // records per second are the score times the chunk size
+    @Benchmark
+    public List<RecordEntity> postChunk() throws AccountEntityNotFoundException {
+        long firstIndex = chunkIndex++ * CHUNK_SIZE;
+        List<RecordEntity> recordEntities = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_SIZE; i++)
+            recordEntities.add(entityToComponentConverter.newRecordToRecordEntity(i % 4 == 0
+                    ? BenchmarkRecords.newRecordWithTax(firstIndex + i)
+                    : BenchmarkRecords.newRecord(firstIndex + i)));
+        recordService.postRecords(recordEntities);
+        return recordEntities;
+    }
+}
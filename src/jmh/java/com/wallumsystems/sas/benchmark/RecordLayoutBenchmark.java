@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// compares the joined record tables with the single record table, using the statements Hibernate issues for each layout
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecordLayoutBenchmark {
+
+    public enum Layout {
+        JOINED,
+        SINGLE_TABLE
+    }
+
+    private static final int RECORD_COUNT = 100_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String JOINED_SELECT = "select r.*, rc.recurrence_interval, rc.start_date, rc.materialized_until, " +
+            "case when t.id is not null then 'TAX' when rr.id is not null then 'REVERTING' " +
+            "when rc.id is not null then 'RECURRING' else 'RECORD' end as record_type " +
+            "from record r " +
+            "left join tax_record t on t.id = r.id " +
+            "left join reverting_record rr on rr.id = r.id " +
+            "left join recurring_record rc on rc.id = r.id ";
+
+    private static final String SINGLE_TABLE_SELECT = "select r.* from record r ";
+
+    @Param({"JOINED", "SINGLE_TABLE"})
+    private Layout layout;
+
+    private Connection connection;
+
+    private PreparedStatement findById;
+
+    private long nextId;
+
+    private long lookupId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:layout-" + layout + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table record (id bigint not null primary key, record_type varchar(31), " +
+                    "booking_date date not null, creation_time timestamp not null, description varchar(255), " +
+                    "value bigint not null, from_account_id bigint not null, to_account_id bigint not null, " +
+                    "tax_record_id bigint unique, reverting_record_id bigint unique, " +
+                    "recurrence_interval timestamp, start_date date, materialized_until date)");
+            if (layout == Layout.JOINED) {
+                statement.execute("alter table record drop column record_type");
+                statement.execute("alter table record drop column recurrence_interval");
+                statement.execute("alter table record drop column start_date");
+                statement.execute("alter table record drop column materialized_until");
+                statement.execute("create table tax_record (id bigint not null primary key references record (id))");
+                statement.execute("create table reverting_record (id bigint not null primary key references record (id))");
+                statement.execute("create table recurring_record (id bigint not null primary key references record (id), " +
+                        "recurrence_interval timestamp not null, start_date date not null, materialized_until date)");
+            }
+        }
+        connection.setAutoCommit(false);
+        while (nextId < RECORD_COUNT)
+            insertBatch();
+        findById = connection.prepareStatement((layout == Layout.JOINED ? JOINED_SELECT : SINGLE_TABLE_SELECT) + "where r.id = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void findById(Blackhole blackhole) throws SQLException {
+        lookupId = (lookupId + 7919) % RECORD_COUNT;
+        findById.setLong(1, lookupId + 1);
+        try (ResultSet resultSet = findById.executeQuery()) {
+            consume(resultSet, blackhole);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void findAll(Blackhole blackhole) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery((layout == Layout.JOINED ? JOINED_SELECT : SINGLE_TABLE_SELECT) + "where r.id <= " + RECORD_COUNT)) {
+            consume(resultSet, blackhole);
+        }
+    }
+
+    // throughput in records, every fifth record comes with a tax record
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        try (PreparedStatement insertRecord = connection.prepareStatement(layout == Layout.JOINED
+                ? "insert into record (booking_date, creation_time, description, value, from_account_id, to_account_id, tax_record_id, id) values (?, ?, ?, ?, ?, ?, ?, ?)"
+                : "insert into record (booking_date, creation_time, description, value, from_account_id, to_account_id, tax_record_id, record_type, id) values (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement insertTaxRecord = layout == Layout.JOINED
+                     ? connection.prepareStatement("insert into tax_record (id) values (?)") : null) {
+            Date bookingDate = Date.valueOf(LocalDate.of(2022, 1, 31));
+            Timestamp creationTime = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                long id = ++nextId;
+                boolean tax = i % 5 == 4;
+                insertRecord.setDate(1, bookingDate);
+                insertRecord.setTimestamp(2, creationTime);
+                insertRecord.setString(3, tax ? "Sales tax" : "Invoice " + id);
+                insertRecord.setLong(4, tax ? 1900 : 10000);
+                insertRecord.setLong(5, 1);
+                insertRecord.setLong(6, 2);
+                insertRecord.setObject(7, null);
+                if (layout == Layout.JOINED) {
+                    insertRecord.setLong(8, id);
+                    if (tax) {
+                        insertTaxRecord.setLong(1, id);
+                        insertTaxRecord.addBatch();
+                    }
+                } else {
+                    insertRecord.setString(8, tax ? "TAX" : "RECORD");
+                    insertRecord.setLong(9, id);
+                }
+                insertRecord.addBatch();
+            }
+            insertRecord.executeBatch();
+            if (insertTaxRecord != null)
+                insertTaxRecord.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static void consume(ResultSet resultSet, Blackhole blackhole) throws SQLException {
+        while (resultSet.next()) {
+            blackhole.consume(resultSet.getLong("id"));
+            blackhole.consume(resultSet.getLong("value"));
+            blackhole.consume(resultSet.getDate("booking_date"));
+            blackhole.consume(resultSet.getString("record_type"));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import com.wallumsystems.sas.SasApplication;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.RecordFilter;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.repository.RecordView;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.service.RecordService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// runs against an in-memory H2 database, which shows the cost of the mapping and statement count rather than MariaDB
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecordRepositoryBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1000", "10000"})
+    private int recordCount;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private RecordRepository recordRepository;
+
+    private RecordService recordService;
+
+    private EntityToComponentConverter entityToComponentConverter;
+
+    private long batchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AccountEntityNotFoundException {
+        applicationContext = new SpringApplicationBuilder(SasApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + recordCount + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "sas.reporting.enabled=false",
+                        "sas.recurring.fixed-delay=3600000",
+                        "sas.receipts.directory=target/benchmark-receipts")
+                .run();
+        recordRepository = applicationContext.getBean(RecordRepository.class);
+        recordService = applicationContext.getBean(RecordService.class);
+        entityToComponentConverter = applicationContext.getBean(EntityToComponentConverter.class);
+
+        AccountRepository accountRepository = applicationContext.getBean(AccountRepository.class);
+        for (AccountEntity accountEntity : List.of(BenchmarkRecords.FROM_ACCOUNT, BenchmarkRecords.TO_ACCOUNT, BenchmarkRecords.TAX_ACCOUNT)) {
+            AccountEntity savedAccount = accountRepository.save(AccountEntity.builder().name(accountEntity.getName()).build());
+            // the fixtures refer to the accounts by id
+            if (!savedAccount.getId().equals(accountEntity.getId()))
+                throw new IllegalStateException("Unexpected account id " + savedAccount.getId());
+        }
+        for (int i = 0; i < recordCount; i += BATCH_SIZE)
+            recordService.postRecords(newRecordEntities(i, Math.min(BATCH_SIZE, recordCount - i)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public List<RecordView> findAllViews() {
+        return recordRepository.findAllViews();
+    }
+
+    @Benchmark
+    public List<RecordView> findFirstViewPage() {
+        return recordRepository.findViews(RecordFilter.NONE, null, null, 100);
+    }
+
+    // the table grows with every invocation, the read benchmarks get their own fork and database
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<RecordEntity> postRecordBatch() throws AccountEntityNotFoundException {
+        List<RecordEntity> recordEntities = newRecordEntities(recordCount + batchIndex++ * BATCH_SIZE, BATCH_SIZE);
+        recordService.postRecords(recordEntities);
+        return recordEntities;
+    }
+
+    private List<RecordEntity> newRecordEntities(long firstIndex, int count) throws AccountEntityNotFoundException {
+        List<RecordEntity> recordEntities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            recordEntities.add(entityToComponentConverter.newRecordToRecordEntity(i % 4 == 0
+                    ? BenchmarkRecords.newRecordWithTax(firstIndex + i)
+                    : BenchmarkRecords.newRecord(firstIndex + i)));
+        return recordEntities;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.benchmark;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.AccountMovement;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.reporting.LedgerEngine;
+import com.wallumsystems.sas.reporting.ReportService;
+import com.wallumsystems.sas.repository.LedgerEntry;
+import com.wallumsystems.sas.repository.RecordRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+// reports over the in-memory ledger, run with -prof gc to see the allocation per report
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    private static final LocalDate FIRST_BOOKING_DATE = LocalDate.of(2020, 1, 1);
+
+    private static final int BOOKING_DAYS = 3 * 365;
+
+    @Param({"1000000", "10000000"})
+    private int recordCount;
+
+    @Param({"1000"})
+    private int accountCount;
+
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        // the engine only streams the ledger entries, they are generated instead of read from a database
+        RecordRepository recordRepository = Mockito.mock(RecordRepository.class);
+        Mockito.when(recordRepository.streamLedgerEntries()).thenAnswer(invocation -> {
+            SplittableRandom random = new SplittableRandom(42);
+            return LongStream.range(0, recordCount).mapToObj(id -> new LedgerEntry(id,
+                    1L + random.nextInt(accountCount),
+                    1L + random.nextInt(accountCount),
+                    1L + random.nextInt(1_000_000),
+                    Date.valueOf(FIRST_BOOKING_DATE.plusDays(random.nextInt(BOOKING_DAYS)))));
+        });
+        LedgerEngine ledgerEngine = new LedgerEngine(recordRepository, Mockito.mock(PlatformTransactionManager.class),
+                true, recordCount);
+        ledgerEngine.startLoading();
+        reportService = new ReportService(ledgerEngine, 0);
+        while (true) {
+            try {
+                reportService.getTrialBalance(FIRST_BOOKING_DATE);
+                return;
+            } catch (LedgerNotLoadedException e) {
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reportService.shutdown();
+    }
+
+    @Benchmark
+    public List<AccountBalance> trialBalance() throws LedgerNotLoadedException {
+        return reportService.getTrialBalance(FIRST_BOOKING_DATE.plusDays(BOOKING_DAYS));
+    }
+
+    // every month of the three years, the totals hold 2 * accounts * 36 slots
+    @Benchmark
+    public List<AccountMovement> movements() throws LedgerNotLoadedException {
+        return reportService.getMovements(YearMonth.from(FIRST_BOOKING_DATE),
+                YearMonth.from(FIRST_BOOKING_DATE.plusDays(BOOKING_DAYS - 1)));
+    }
+}
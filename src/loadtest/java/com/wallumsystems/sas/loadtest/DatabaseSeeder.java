@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Fills the schema Hibernate created with plain JDBC batches. Runners are called before the application is ready,
+// so the reporting ledger and the search index load the seeded records like they load a production database.
+@Component
+@Profile("loadtest")
+public class DatabaseSeeder implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseSeeder.class);
+
+    private final DataSource dataSource;
+
+    private final LoadTestProperties.Seed seed;
+
+    private volatile SeedResult seedResult;
+
+    // the accounts have the ids 1 to accounts, the records the ones right after them
+    public record SeedResult(int accounts, int records, long firstRecordId, double seconds) {
+    }
+
+    public DatabaseSeeder(DataSource dataSource, LoadTestProperties loadTestProperties) {
+        this.dataSource = dataSource;
+        this.seed = loadTestProperties.getSeed();
+    }
+
+    public SeedResult getSeedResult() {
+        return seedResult;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        long start = System.nanoTime();
+        int accounts = seed.getAccounts();
+        int records = seed.getRecords();
+        long firstRecordId = accounts + 1L;
+        SplittableRandom random = new SplittableRandom(seed.getRandomSeed());
+        long[] incomingTotals = new long[accounts + 1];
+        long[] outgoingTotals = new long[accounts + 1];
+        LocalDate today = LocalDate.now();
+        Timestamp creationTime = new Timestamp(System.currentTimeMillis());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertAccount = connection.prepareStatement(
+                    "insert into account (id, name) values (?, ?)")) {
+                for (int i = 1; i <= accounts; i++) {
+                    insertAccount.setLong(1, i);
+                    insertAccount.setString(2, "Load test account " + i);
+                    insertAccount.addBatch();
+                    if (i % seed.getBatchSize() == 0 || i == accounts)
+                        executeAndCommit(insertAccount, connection);
+                }
+            }
+            try (PreparedStatement insertRecord = connection.prepareStatement("insert into record " +
+                    "(id, record_type, booking_date, creation_time, description, value, from_account_id, to_account_id) " +
+                    "values (?, 'RECORD', ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < records; i++) {
+                    int fromAccount = 1 + random.nextInt(accounts);
+                    // never the same account on both sides
+                    int toAccount = 1 + (fromAccount + random.nextInt(Math.max(1, accounts - 1))) % accounts;
+                    long value = 1 + random.nextLong(1_000_000);
+                    insertRecord.setLong(1, firstRecordId + i);
+                    insertRecord.setDate(2, Date.valueOf(today.minusDays(random.nextInt(seed.getBookingDays()))));
+                    insertRecord.setTimestamp(3, creationTime);
+                    insertRecord.setString(4, "Seed record " + i);
+                    insertRecord.setLong(5, value);
+                    insertRecord.setLong(6, fromAccount);
+                    insertRecord.setLong(7, toAccount);
+                    insertRecord.addBatch();
+                    outgoingTotals[fromAccount] += value;
+                    incomingTotals[toAccount] += value;
+                    if ((i + 1) % seed.getBatchSize() == 0 || i + 1 == records) {
+                        executeAndCommit(insertRecord, connection);
+                        if ((i + 1) % (seed.getBatchSize() * 100) == 0)
+                            LOGGER.info("Seeded {} of {} records", i + 1, records);
+                    }
+                }
+            }
+            // the balances the postings would have accumulated
+            try (PreparedStatement insertBalance = connection.prepareStatement(
+                    "insert into account_balance (account_id, incoming_total, outgoing_total) values (?, ?, ?)")) {
+                for (int i = 1; i <= accounts; i++) {
+                    insertBalance.setLong(1, i);
+                    insertBalance.setLong(2, incomingTotals[i]);
+                    insertBalance.setLong(3, outgoingTotals[i]);
+                    insertBalance.addBatch();
+                    if (i % seed.getBatchSize() == 0 || i == accounts)
+                        executeAndCommit(insertBalance, connection);
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                // the indexes of V7, built after the inserts because that is faster
+                statement.execute("create index idx_record_from_account_booking_date on record (from_account_id, booking_date)");
+                statement.execute("create index idx_record_to_account_booking_date on record (to_account_id, booking_date)");
+                statement.execute("create index idx_record_booking_date on record (booking_date)");
+                // the pooled-lo generator continues after the seeded ids
+                statement.execute("alter sequence hibernate_sequence restart with " + (firstRecordId + records));
+            }
+            connection.commit();
+        }
+        seedResult = new SeedResult(accounts, records, firstRecordId, (System.nanoTime() - start) / 1e9);
+        LOGGER.info("Seeded {} accounts and {} records in {} s", accounts, records, Math.round(seedResult.seconds()));
+    }
+
+    private static void executeAndCommit(PreparedStatement statement, Connection connection) throws SQLException {
+        statement.executeBatch();
+        connection.commit();
+    }
+}
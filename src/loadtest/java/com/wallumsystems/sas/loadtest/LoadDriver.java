@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.exception.SearchIndexNotLoadedException;
+import com.wallumsystems.sas.reporting.ReportService;
+import com.wallumsystems.sas.search.RecordSearchService;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives the running application over HTTP from a fixed number of workers. With a target rate every worker keeps a
+// schedule and the latency is taken from the scheduled start, so a stalled server is not hidden by workers that
+// simply send less (coordinated omission).
+@Component
+@Profile("loadtest")
+public class LoadDriver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadDriver.class);
+
+    private final LoadTestProperties loadTestProperties;
+
+    private final DatabaseSeeder databaseSeeder;
+
+    private final RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    private final ReportService reportService;
+
+    private final RecordSearchService recordSearchService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Environment environment;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private final AtomicLong nextRevertOffset = new AtomicLong();
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    private String postPath;
+
+    private String revertPath;
+
+    public LoadDriver(LoadTestProperties loadTestProperties,
+                      DatabaseSeeder databaseSeeder,
+                      RequestMappingHandlerMapping requestMappingHandlerMapping,
+                      ReportService reportService,
+                      RecordSearchService recordSearchService,
+                      ObjectMapper objectMapper,
+                      Environment environment) {
+        this.loadTestProperties = loadTestProperties;
+        this.databaseSeeder = databaseSeeder;
+        this.requestMappingHandlerMapping = requestMappingHandlerMapping;
+        this.reportService = reportService;
+        this.recordSearchService = recordSearchService;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public LoadTestReport run() throws InterruptedException {
+        baseUrl = "http://localhost:" + environment.getRequiredProperty("local.server.port");
+        // the paths of the generated API are taken from the mappings of the delegate methods
+        postPath = pathOf("postRecord");
+        revertPath = pathOf("postRevertRecord");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(loadTestProperties.getRequestTimeout())
+                .build();
+        awaitInMemoryViews();
+
+        int concurrency = loadTestProperties.getConcurrency();
+        long warmupNanos = loadTestProperties.getWarmup().toNanos();
+        long durationNanos = loadTestProperties.getDuration().toNanos();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long measureUntil = measureFrom + durationNanos;
+        Instant startTime = Instant.now();
+        LOGGER.info("Running {} workers for {} s of warm-up and {} s of measurement", concurrency,
+                loadTestProperties.getWarmup().toSeconds(), loadTestProperties.getDuration().toSeconds());
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            SplittableRandom random = new SplittableRandom(loadTestProperties.getSeed().getRandomSeed() + worker);
+            futures.add(workers.submit(() -> work(random, start, measureFrom, measureUntil)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A load test worker failed", e.getCause());
+            }
+        }
+        workers.shutdown();
+
+        double seconds = durationNanos / 1e9;
+        Map<Operation, LoadTestReport.OperationResult> operations = new EnumMap<>(Operation.class);
+        Histogram totalHistogram = new Histogram(3);
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            long operationErrors = errors.get(operation).sum();
+            operations.put(operation, result(histogram, operationErrors, seconds));
+            totalHistogram.add(histogram);
+            totalErrors += operationErrors;
+        }
+        LoadTestReport.OperationResult total = result(totalHistogram, totalErrors, seconds);
+        List<String> violations = sloViolations(operations, total);
+        return new LoadTestReport(startTime, concurrency, loadTestProperties.getTargetRate(),
+                warmupNanos / 1e9, seconds, databaseSeeder.getSeedResult(), operations, total, violations,
+                violations.isEmpty());
+    }
+
+    private void work(SplittableRandom random, long start, long measureFrom, long measureUntil) {
+        double targetRate = loadTestProperties.getTargetRate();
+        long interval = targetRate > 0 ? (long) (1e9 * loadTestProperties.getConcurrency() / targetRate) : 0;
+        // spread the first requests of the workers over one interval
+        long scheduled = start + (interval > 0 ? random.nextLong(interval) : 0);
+        while (true) {
+            long now = System.nanoTime();
+            if (interval > 0) {
+                if (scheduled >= measureUntil)
+                    return;
+                // parking may return early
+                while (now < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                    now = System.nanoTime();
+                }
+            } else {
+                if (now >= measureUntil)
+                    return;
+                scheduled = now;
+            }
+            Operation operation = nextOperation(random);
+            long revertId = operation == Operation.REVERT ? nextRevertId() : 0;
+            // once every seeded record has been reverted the reverts turn into posts
+            if (revertId < 0)
+                operation = Operation.POST;
+            boolean success;
+            try {
+                success = execute(operation, revertId, random);
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - scheduled;
+            // requests scheduled before the end of the warm-up are not measured
+            if (scheduled >= measureFrom) {
+                if (success)
+                    recorders.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+                else
+                    errors.get(operation).increment();
+            }
+            scheduled += interval;
+        }
+    }
+
+    private boolean execute(Operation operation, long revertId, SplittableRandom random)
+            throws IOException, InterruptedException {
+        DatabaseSeeder.SeedResult seed = databaseSeeder.getSeedResult();
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .timeout(loadTestProperties.getRequestTimeout())
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        switch (operation) {
+            case POST -> {
+                int fromAccount = 1 + random.nextInt(seed.accounts());
+                int toAccount = 1 + (fromAccount + random.nextInt(Math.max(1, seed.accounts() - 1))) % seed.accounts();
+                NewRecord newRecord = new NewRecord()
+                        .description("Load test record")
+                        .fromAccountId(fromAccount)
+                        .toAccountId(toAccount)
+                        .amount(BigDecimal.valueOf(1 + random.nextLong(1_000_000), 2))
+                        .bookingDate(LocalDate.now());
+                request.uri(URI.create(baseUrl + postPath))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(newRecord)));
+            }
+            case REVERT -> request.uri(URI.create(baseUrl + revertPath.replace("{id}", Long.toString(revertId))))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+            case LIST -> {
+                int accountId = 1 + random.nextInt(seed.accounts());
+                request.uri(URI.create(baseUrl + "/records/page?accountId=" + accountId
+                                + "&size=" + loadTestProperties.getListPageSize()))
+                        .GET();
+            }
+        }
+        HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() / 100 == 2;
+    }
+
+    // every seeded record is reverted at most once, newest first, -1 when none is left
+    private long nextRevertId() {
+        DatabaseSeeder.SeedResult seed = databaseSeeder.getSeedResult();
+        long offset = nextRevertOffset.getAndIncrement();
+        return offset < seed.records() ? seed.firstRecordId() + seed.records() - 1 - offset : -1;
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        int totalWeight = loadTestProperties.getMix().values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : loadTestProperties.getMix().entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0)
+                return weight.getKey();
+        }
+        throw new IllegalStateException("The operation mix is empty");
+    }
+
+    // the reporting ledger and the search index load in the background and would compete with the measurement
+    private void awaitInMemoryViews() throws InterruptedException {
+        long start = System.nanoTime();
+        if (environment.getProperty("sas.reporting.enabled", Boolean.class, true)) {
+            while (true) {
+                try {
+                    reportService.getTrialBalance(LocalDate.now());
+                    break;
+                } catch (LedgerNotLoadedException e) {
+                    TimeUnit.SECONDS.sleep(1);
+                }
+            }
+        }
+        if (environment.getProperty("sas.search.enabled", Boolean.class, true)) {
+            while (true) {
+                try {
+                    recordSearchService.search("readiness", null, null, null, 0, 1);
+                    break;
+                } catch (SearchIndexNotLoadedException e) {
+                    TimeUnit.SECONDS.sleep(1);
+                }
+            }
+        }
+        LOGGER.info("In-memory views loaded after {} s", Duration.ofNanos(System.nanoTime() - start).toSeconds());
+    }
+
+    private String pathOf(String delegateMethod) {
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> mapping : requestMappingHandlerMapping.getHandlerMethods().entrySet())
+            if (mapping.getValue().getMethod().getName().equals(delegateMethod))
+                return mapping.getKey().getPatternValues().iterator().next();
+        throw new IllegalStateException("No request mapping for " + delegateMethod);
+    }
+
+    private List<String> sloViolations(Map<Operation, LoadTestReport.OperationResult> operations,
+                                       LoadTestReport.OperationResult total) {
+        LoadTestProperties.Slo slo = loadTestProperties.getSlo();
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<Operation, LoadTestProperties.Latency> latency : slo.getLatency().entrySet()) {
+            LoadTestReport.OperationResult result = operations.get(latency.getKey());
+            checkLatency(violations, latency.getKey() + " p50", result.p50Millis(), latency.getValue().getP50());
+            checkLatency(violations, latency.getKey() + " p99", result.p99Millis(), latency.getValue().getP99());
+            checkLatency(violations, latency.getKey() + " p999", result.p999Millis(), latency.getValue().getP999());
+        }
+        if (total.throughput() < slo.getMinThroughput())
+            violations.add(String.format("throughput %.1f/s is below %.1f/s", total.throughput(), slo.getMinThroughput()));
+        if (total.errorRate() > slo.getMaxErrorRate())
+            violations.add(String.format("error rate %.4f is above %.4f", total.errorRate(), slo.getMaxErrorRate()));
+        return violations;
+    }
+
+    private static void checkLatency(List<String> violations, String name, double millis, Duration limit) {
+        if (limit != null && millis > limit.toNanos() / 1e6)
+            violations.add(String.format("%s latency %.2f ms is above %d ms", name, millis, limit.toMillis()));
+    }
+
+    private static LoadTestReport.OperationResult result(Histogram histogram, long errors, double seconds) {
+        long successes = histogram.getTotalCount();
+        long requests = successes + errors;
+        return new LoadTestReport.OperationResult(requests, errors,
+                requests == 0 ? 0 : (double) errors / requests,
+                successes / seconds,
+                histogram.getMean() / 1000,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
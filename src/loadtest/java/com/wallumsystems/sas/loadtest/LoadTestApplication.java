@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallumsystems.sas.SasApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Starts the whole application against an in-memory database, seeds it, drives the load and writes the report.
+// Exits with 1 when an SLO has been missed, so the build that runs it fails.
+public class LoadTestApplication {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    public static void main(String[] args) throws Exception {
+        SpringApplication application = new SpringApplication(SasApplication.class);
+        application.setAdditionalProfiles("loadtest");
+        ConfigurableApplicationContext context = application.run(args);
+        boolean passed;
+        try {
+            LoadTestReport report = context.getBean(LoadDriver.class).run();
+            Path reportFile = Path.of(context.getBean(LoadTestProperties.class).getReportFile());
+            if (reportFile.getParent() != null)
+                Files.createDirectories(reportFile.getParent());
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+            LOGGER.info("Load test report written to {}:\n{}", reportFile.toAbsolutePath(),
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report.operations()));
+            for (String violation : report.sloViolations())
+                LOGGER.error("SLO missed: {}", violation);
+            passed = report.passed();
+        } finally {
+            SpringApplication.exit(context);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+}
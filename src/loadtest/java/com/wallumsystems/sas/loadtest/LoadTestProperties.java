@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@Profile("loadtest")
+@ConfigurationProperties(prefix = "sas.loadtest")
+public class LoadTestProperties {
+
+    private Seed seed = new Seed();
+
+    private int concurrency = 32;
+
+    // requests per second over all workers, 0 runs every worker in a closed loop
+    private double targetRate = 0;
+
+    private Duration warmup = Duration.ofSeconds(30);
+
+    private Duration duration = Duration.ofMinutes(2);
+
+    private Duration requestTimeout = Duration.ofSeconds(30);
+
+    // relative weights of the operations
+    private Map<Operation, Integer> mix = new EnumMap<>(Map.of(Operation.POST, 60, Operation.REVERT, 10, Operation.LIST, 30));
+
+    private int listPageSize = 100;
+
+    private String reportFile = "target/loadtest-report.json";
+
+    private Slo slo = new Slo();
+
+    @Getter
+    @Setter
+    public static class Seed {
+        private int accounts = 1_000_000;
+        private int records = 3_000_000;
+        // the booking dates are spread over this many days before today
+        private int bookingDays = 730;
+        private int batchSize = 10_000;
+        private long randomSeed = 42;
+    }
+
+    // unset limits are not checked
+    @Getter
+    @Setter
+    public static class Slo {
+        private Map<Operation, Latency> latency = new EnumMap<>(Operation.class);
+        private double minThroughput;
+        private double maxErrorRate = 0.001;
+    }
+
+    @Getter
+    @Setter
+    public static class Latency {
+        private Duration p50;
+        private Duration p99;
+        private Duration p999;
+    }
+}
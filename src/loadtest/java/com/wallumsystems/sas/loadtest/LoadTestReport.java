@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.loadtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// written as JSON, the latencies are in milliseconds and the throughput in successful requests per second
+public record LoadTestReport(Instant startTime,
+                             int concurrency,
+                             double targetRate,
+                             double warmupSeconds,
+                             double durationSeconds,
+                             DatabaseSeeder.SeedResult seed,
+                             Map<Operation, OperationResult> operations,
+                             OperationResult total,
+                             List<String> sloViolations,
+                             boolean passed) {
+
+    public record OperationResult(long requests,
+                                  long errors,
+                                  double errorRate,
+                                  double throughput,
+                                  double meanMillis,
+                                  double p50Millis,
+                                  double p99Millis,
+                                  double p999Millis,
+                                  double maxMillis) {
+    }
+}
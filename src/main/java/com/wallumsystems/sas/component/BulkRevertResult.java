@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.component;
+
+public record BulkRevertResult(Integer id, Status status, Integer revertingRecordId, String message) {
+
+    public enum Status {
+        REVERTED,
+        ALREADY_REVERTED,
+        NOT_REVERTIBLE,
+        NOT_FOUND,
+        FAILED
+    }
+
+    public static BulkRevertResult reverted(Long id, Long revertingRecordId) {
+        return new BulkRevertResult(Math.toIntExact(id), Status.REVERTED, Math.toIntExact(revertingRecordId), null);
+    }
+
+    public static BulkRevertResult alreadyReverted(Long id, Long revertingRecordId) {
+        return new BulkRevertResult(Math.toIntExact(id), Status.ALREADY_REVERTED, Math.toIntExact(revertingRecordId), null);
+    }
+
+    public static BulkRevertResult notRevertible(Long id) {
+        return new BulkRevertResult(Math.toIntExact(id), Status.NOT_REVERTIBLE, null,
+                "Tax, reverting and recurring records can not be reverted");
+    }
+
+    public static BulkRevertResult notFound(Long id) {
+        return new BulkRevertResult(Math.toIntExact(id), Status.NOT_FOUND, null, null);
+    }
+
+    public static BulkRevertResult failed(Long id, String message) {
+        return new BulkRevertResult(Math.toIntExact(id), Status.FAILED, null, message);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.component;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public enum ExportFormat {
+    CSV(',', StandardCharsets.UTF_8, "csv"),
+    // booking batch layout as read by DATEV, which still expects windows-1252 and semicolons
+    DATEV(';', Charset.forName("windows-1252"), "csv");
+
+    private final char delimiter;
+
+    private final Charset charset;
+
+    private final String extension;
+
+    ExportFormat(char delimiter, Charset charset, String extension) {
+        this.delimiter = delimiter;
+        this.charset = charset;
+        this.extension = extension;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.component;
+
+public record ReconciliationResult(int index, Status status, Integer recordId, String message) {
+
+    public enum Status {
+        RECONCILED,
+        REJECTED,
+        FAILED
+    }
+
+    public static ReconciliationResult reconciled(int index, Long recordId) {
+        return new ReconciliationResult(index, Status.RECONCILED, Math.toIntExact(recordId), null);
+    }
+
+    public static ReconciliationResult rejected(int index, Integer recordId, String message) {
+        return new ReconciliationResult(index, Status.REJECTED, recordId, message);
+    }
+
+    public static ReconciliationResult failed(int index, Integer recordId, String message) {
+        return new ReconciliationResult(index, Status.FAILED, recordId, message);
+    }
+}
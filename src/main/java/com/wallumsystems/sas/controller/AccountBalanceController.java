@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.BalanceDrift;
+import com.wallumsystems.sas.service.AccountBalanceService;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.BalanceSnapshotService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping(value = "/accounts", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        EncodingConfiguration.APPLICATION_SMILE_VALUE})
+public class AccountBalanceController {
+
+    private final AccountBalanceService accountBalanceService;
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    private final AccountCache accountCache;
+
+    public AccountBalanceController(AccountBalanceService accountBalanceService,
+                                    BalanceSnapshotService balanceSnapshotService,
+                                    AccountCache accountCache) {
+        this.accountBalanceService = accountBalanceService;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.accountCache = accountCache;
+    }
+
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<AccountBalance> getAccountBalance(@PathVariable("id") Integer id) {
+        if (accountCache.findById(id.longValue()).isEmpty())
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(accountBalanceService.getBalance(id.longValue()), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/balance/as-of")
+    public ResponseEntity<AccountBalance> getAccountBalanceAsOf(
+            @PathVariable("id") Integer id,
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (accountCache.findById(id.longValue()).isEmpty())
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(balanceSnapshotService.getBalanceAsOf(id.longValue(), date), HttpStatus.OK);
+    }
+
+    @GetMapping("/balances")
+    public ResponseEntity<List<AccountBalance>> getAccountBalances() {
+        return new ResponseEntity<>(accountBalanceService.getBalances(), HttpStatus.OK);
+    }
+
+    @GetMapping("/balances/verify")
+    public ResponseEntity<List<BalanceDrift>> verifyAccountBalances() {
+        return new ResponseEntity<>(accountBalanceService.verify(), HttpStatus.OK);
+    }
+
+    @PostMapping("/balances/rebuild")
+    public ResponseEntity<List<BalanceDrift>> rebuildAccountBalances() {
+        return new ResponseEntity<>(accountBalanceService.rebuild(), HttpStatus.OK);
+    }
+}
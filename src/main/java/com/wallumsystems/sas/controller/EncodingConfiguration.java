@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// CBOR and Smile are only chosen when a client asks for them, JSON stays the default
+@Configuration
+public class EncodingConfiguration implements WebMvcConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final String GENERATED_API_PACKAGE = "com.wallumsystems.sas.swagger.api";
+
+    // prototype scoped, a fresh builder with the spring.jackson.* settings and the registered modules per call
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public EncodingConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    // Spring MVC may already have added both converters with its own default mapper. They are replaced at the
+    // end of the list, behind the JSON converter, so Accept: */* keeps getting JSON. Dates and amounts are
+    // written the same way as in JSON.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+    }
+
+    // The generated API only declares application/json. A second mapping for the binary types would be
+    // preferred for Accept: */* over the generated one, so the binary types are appended to the generated
+    // mappings instead, behind JSON.
+    @Bean
+    public WebMvcRegistrations binaryEncodingRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new RequestMappingHandlerMapping() {
+                    @Override
+                    protected RequestMappingInfo getMappingForMethod(Method method, Class<?> handlerType) {
+                        RequestMappingInfo mappingInfo = super.getMappingForMethod(method, handlerType);
+                        if (mappingInfo == null || !handlerType.getPackageName().equals(GENERATED_API_PACKAGE))
+                            return mappingInfo;
+                        Set<MediaType> producibleMediaTypes = mappingInfo.getProducesCondition().getProducibleMediaTypes();
+                        if (!producibleMediaTypes.contains(MediaType.APPLICATION_JSON))
+                            return mappingInfo;
+                        List<String> produces = new ArrayList<>();
+                        producibleMediaTypes.forEach(mediaType -> produces.add(mediaType.toString()));
+                        produces.add(MediaType.APPLICATION_CBOR_VALUE);
+                        produces.add(APPLICATION_SMILE_VALUE);
+                        return mappingInfo.mutate().produces(produces.toArray(String[]::new)).build();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.ExportFormat;
+import com.wallumsystems.sas.service.RecordExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/records")
+public class ExportController {
+
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final RecordExportService recordExportService;
+
+    public ExportController(RecordExportService recordExportService) {
+        this.recordExportService = recordExportService;
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecords(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("until") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate until,
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        if (until.isBefore(from))
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        // the DATEV booking date carries no year, a batch must not span more than one
+        if (format == ExportFormat.DATEV && from.getYear() != until.getYear())
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        String fileName = "records-" + from + "-" + until + "." + format.getExtension() + (gzip ? ".gz" : "");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(gzip ? APPLICATION_GZIP : new MediaType("text", "csv", format.getCharset()));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(fileName).build());
+        StreamingResponseBody body = outputStream -> recordExportService.export(from, until, format, gzip, outputStream);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
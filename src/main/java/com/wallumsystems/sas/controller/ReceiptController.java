@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.Receipt;
+import com.wallumsystems.sas.entity.ReceiptEntity;
+import com.wallumsystems.sas.service.ReceiptService;
+import com.wallumsystems.sas.service.ReceiptStore;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/records")
+public class ReceiptController {
+
+    // request attributes of the Tomcat connector, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // the content type is chosen by the uploader, only types that can not run script are shown inline
+    private static final Set<MediaType> INLINE_TYPES = Set.of(
+            MediaType.APPLICATION_PDF, MediaType.IMAGE_PNG, MediaType.IMAGE_JPEG, MediaType.IMAGE_GIF);
+
+    private final ReceiptService receiptService;
+
+    private final ReceiptStore receiptStore;
+
+    public ReceiptController(ReceiptService receiptService, ReceiptStore receiptStore) {
+        this.receiptService = receiptService;
+        this.receiptStore = receiptStore;
+    }
+
+    @GetMapping(value = "/{id}/receipts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Receipt>> getReceipts(@PathVariable("id") Integer id) {
+        return receiptService.getReceipts(id.longValue())
+                .map(receipts -> new ResponseEntity<>(receipts, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/{id}/receipts/{receiptId}")
+    public void getReceiptContent(@PathVariable("id") Integer id,
+                                  @PathVariable("receiptId") Integer receiptId,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Optional<ReceiptEntity> receiptOptional = receiptService.getReceipt(id.longValue(), receiptId.longValue());
+        if (receiptOptional.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        ReceiptEntity receipt = receiptOptional.get();
+        Path contentFile;
+        try {
+            // sendfile only accepts canonical file names
+            contentFile = receiptStore.pathOf(receipt.getContentHash()).toRealPath();
+        } catch (NoSuchFileException e) {
+            response.setStatus(HttpStatus.GONE.value());
+            return;
+        }
+        long length = receipt.getContentLength();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // the content never changes for a given hash, so it is a strong validator
+        response.setHeader(HttpHeaders.ETAG, "\"" + receipt.getContentHash() + "\"");
+
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+            // multiple ranges are answered with the whole content, which RFC 7233 allows
+            if (ranges.size() == 1 && length > 0) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                // HttpRange does not check that the range starts within the content
+                if (start > end)
+                    throw new IllegalArgumentException("Range starts after the content");
+            }
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        if (ranges.size() == 1 && length > 0) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+        Optional<MediaType> inlineType = inlineType(receipt.getContentType());
+        response.setContentType(inlineType.orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (inlineType.isPresent() ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(receipt.getName() != null ? receipt.getName() : receipt.getContentHash(), StandardCharsets.UTF_8)
+                        .build().toString());
+        response.setContentLengthLong(end - start + 1);
+
+        if (length > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // the connector hands the file to the kernel once the request returns
+            request.setAttribute(SENDFILE_FILENAME, contentFile.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        // without sendfile the content is copied through a buffer into the servlet stream
+        try (InputStream content = Channels.newInputStream(FileChannel.open(contentFile).position(start))) {
+            StreamUtils.copyRange(content, response.getOutputStream(), 0, end - start);
+        }
+    }
+
+    private static Optional<MediaType> inlineType(String contentType) {
+        if (contentType == null)
+            return Optional.empty();
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return INLINE_TYPES.stream().filter(type -> type.equalsTypeAndSubtype(mediaType)).findFirst();
+        } catch (InvalidMediaTypeException e) {
+            return Optional.empty();
+        }
+    }
+}
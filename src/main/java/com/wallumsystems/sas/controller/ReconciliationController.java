@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.ReconciliationConfirmation;
+import com.wallumsystems.sas.component.ReconciliationRequest;
+import com.wallumsystems.sas.component.ReconciliationResult;
+import com.wallumsystems.sas.component.ReconciliationSuggestion;
+import com.wallumsystems.sas.component.StatementLine;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.reconciliation.ReconciliationProperties;
+import com.wallumsystems.sas.reconciliation.ReconciliationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reconciliations")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    private final ReconciliationProperties reconciliationProperties;
+
+    public ReconciliationController(ReconciliationService reconciliationService,
+                                    ReconciliationProperties reconciliationProperties) {
+        this.reconciliationService = reconciliationService;
+        this.reconciliationProperties = reconciliationProperties;
+    }
+
+    @PostMapping(value = "/suggestions",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    EncodingConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<ReconciliationSuggestion>> suggestMatches(
+            @RequestBody ReconciliationRequest reconciliationRequest) {
+        if (reconciliationRequest.accountId() == null || reconciliationRequest.lines() == null
+                || reconciliationRequest.lines().size() > reconciliationProperties.getMaxLines())
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        if (reconciliationRequest.dateWindowDays() != null && reconciliationRequest.dateWindowDays() < 0)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        if (reconciliationRequest.amountTolerance() != null
+                && reconciliationRequest.amountTolerance().compareTo(BigDecimal.ZERO) < 0)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        for (StatementLine line : reconciliationRequest.lines())
+            if (line == null || line.bookingDate() == null || line.amount() == null)
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(reconciliationService.suggest(reconciliationRequest), HttpStatus.OK);
+        } catch (AccountEntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (ArithmeticException e) {
+            // an amount or the tolerance has more than two decimals
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // the result has one entry per match in request order
+    @PostMapping(value = "/matches",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    EncodingConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<ReconciliationResult>> confirmMatches(
+            @RequestBody ReconciliationConfirmation reconciliationConfirmation) {
+        if (reconciliationConfirmation.accountId() == null || reconciliationConfirmation.matches() == null)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(reconciliationService.confirm(reconciliationConfirmation), HttpStatus.OK);
+        } catch (AccountEntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+}
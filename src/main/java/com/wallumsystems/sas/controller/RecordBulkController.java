@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.wallumsystems.sas.component.BulkRecordResult;
+import com.wallumsystems.sas.component.BulkRevertRequest;
+import com.wallumsystems.sas.component.BulkRevertResult;
+import com.wallumsystems.sas.service.RecordBulkService;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/records")
+public class RecordBulkController {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final RecordBulkService recordBulkService;
+
+    private final ObjectReader newRecordReader;
+
+    public RecordBulkController(RecordBulkService recordBulkService, ObjectMapper objectMapper) {
+        this.recordBulkService = recordBulkService;
+        this.newRecordReader = objectMapper.readerFor(NewRecord.class);
+    }
+
+    // accepts a JSON array as well as newline delimited records, both are read one record at a time
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    EncodingConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BulkRecordResult>> postRecords(InputStream body) throws IOException {
+        try (MappingIterator<NewRecord> newRecords = newRecordReader.readValues(body)) {
+            return new ResponseEntity<>(recordBulkService.postRecords(newRecords), HttpStatus.OK);
+        }
+    }
+
+    @PostMapping(value = "/revert",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    EncodingConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BulkRevertResult>> revertRecords(@RequestBody BulkRevertRequest bulkRevertRequest) {
+        if (bulkRevertRequest.ids() == null && bulkRevertRequest.filter() == null)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(recordBulkService.revertRecords(bulkRevertRequest), HttpStatus.OK);
+    }
+}
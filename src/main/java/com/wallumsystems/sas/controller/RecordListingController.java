@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.RecordCursor;
+import com.wallumsystems.sas.component.RecordPage;
+import com.wallumsystems.sas.repository.RecordFilter;
+import com.wallumsystems.sas.repository.RecordType;
+import com.wallumsystems.sas.service.RecordListingService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/records")
+public class RecordListingController {
+
+    private final RecordListingService recordListingService;
+
+    public RecordListingController(RecordListingService recordListingService) {
+        this.recordListingService = recordListingService;
+    }
+
+    @GetMapping(value = "/page", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            EncodingConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<RecordPage> getRecordPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "accountId", required = false) Integer accountId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "until", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate until,
+            @RequestParam(value = "type", required = false) RecordType type) {
+        RecordCursor cursor;
+        try {
+            cursor = after == null ? null : RecordCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (from != null && until != null && from.isAfter(until))
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        RecordFilter filter = new RecordFilter(accountId != null ? accountId.longValue() : null, from, until, type);
+        return new ResponseEntity<>(recordListingService.getPage(filter, cursor, size), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRecords() {
+        return new ResponseEntity<>(recordListingService::writeAll, HttpStatus.OK);
+    }
+}
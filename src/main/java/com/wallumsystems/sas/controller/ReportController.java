@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.AccountMovement;
+import com.wallumsystems.sas.component.ProfitAndLoss;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.reporting.ReportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping(value = "/reports", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReportController {
+
+    private static final int MAX_MOVEMENT_PERIODS = 120;
+
+    private final ReportService reportService;
+
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    @GetMapping("/trial-balance")
+    public ResponseEntity<List<AccountBalance>> getTrialBalance(
+            @RequestParam(value = "asOf", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        try {
+            return new ResponseEntity<>(reportService.getTrialBalance(asOf == null ? LocalDate.now() : asOf), HttpStatus.OK);
+        } catch (LedgerNotLoadedException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping("/movements")
+    public ResponseEntity<List<AccountMovement>> getMovements(@RequestParam("from") YearMonth from,
+                                                              @RequestParam("to") YearMonth to) {
+        if (to.isBefore(from) || from.plusMonths(MAX_MOVEMENT_PERIODS).isBefore(to))
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(reportService.getMovements(from, to), HttpStatus.OK);
+        } catch (LedgerNotLoadedException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping("/profit-and-loss")
+    public ResponseEntity<ProfitAndLoss> getProfitAndLoss(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam("incomeAccountIds") List<Long> incomeAccountIds,
+            @RequestParam("expenseAccountIds") List<Long> expenseAccountIds) {
+        if (to.isBefore(from))
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(
+                    reportService.getProfitAndLoss(from, to, incomeAccountIds, expenseAccountIds), HttpStatus.OK);
+        } catch (LedgerNotLoadedException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
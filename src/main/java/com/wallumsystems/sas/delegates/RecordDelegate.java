@@ -21,20 +21,26 @@
 package com.wallumsystems.sas.delegates;
 
 import com.wallumsystems.sas.entity.RecordEntity;
-import com.wallumsystems.sas.entity.RevertingRecordEntity;
-import com.wallumsystems.sas.entity.TaxRecordEntity;
 import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.exception.JournalWriteException;
+import com.wallumsystems.sas.exception.RecordAlreadyRevertedException;
+import com.wallumsystems.sas.exception.RecordNotRevertibleException;
+import com.wallumsystems.sas.journal.JournalService;
 import com.wallumsystems.sas.repository.RecordRepository;
 import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.service.ReceiptService;
 import com.wallumsystems.sas.service.RecordService;
 import com.wallumsystems.sas.swagger.api.RecordsApiDelegate;
 import com.wallumsystems.sas.swagger.model.NewRecord;
 import com.wallumsystems.sas.swagger.model.Record;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,60 +53,95 @@ public class RecordDelegate implements RecordsApiDelegate {
 
     private final EntityToComponentConverter entityToComponentConverter;
 
-    public RecordDelegate(RecordRepository recordRepository, RecordService recordService, EntityToComponentConverter entityToComponentConverter) {
+    private final ReceiptService receiptService;
+
+    // only available in journal mode
+    private final ObjectProvider<JournalService> journalService;
+
+    public RecordDelegate(RecordRepository recordRepository, RecordService recordService, EntityToComponentConverter entityToComponentConverter, ReceiptService receiptService, ObjectProvider<JournalService> journalService) {
         this.recordRepository = recordRepository;
         this.recordService = recordService;
         this.entityToComponentConverter = entityToComponentConverter;
+        this.receiptService = receiptService;
+        this.journalService = journalService;
     }
 
+    // read-only, so it is served by a replica when routing is enabled
     @Override
+    @Transactional(readOnly = true)
     public ResponseEntity<List<Record>> getRecord() {
         // TODO: should teh result be filtered for all the tax- and reverting records? And how are those handled?
         return new ResponseEntity<>(
-                recordRepository.findAll().stream()
-                        .map(entityToComponentConverter::recordEntityToRecord)
+                recordRepository.findAllViews().stream()
+                        .map(entityToComponentConverter::recordViewToRecord)
                         .toList()
                 , HttpStatus.OK);
     }
 
     @Override
     public ResponseEntity<Record> postRevertRecord(Integer id) {
-        Optional<RecordEntity> recordEntityOptional = recordRepository.findById((long) id);
-        if (recordEntityOptional.isEmpty())
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        // reverting records and tax records can not be reverted
-        if (recordEntityOptional.get() instanceof RevertingRecordEntity
-                || recordEntityOptional.get() instanceof TaxRecordEntity)
+        JournalService journal = journalService.getIfAvailable();
+        if (journal != null)
+            return revertThroughJournal(journal, id);
+        try {
+            Optional<RecordEntity> revertedRecord = recordService.revertRecord((long) id);
+            if (revertedRecord.isEmpty())
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(
+                    entityToComponentConverter.recordEntityToRecord(revertedRecord.get()),
+                    HttpStatus.ACCEPTED);
+        } catch (RecordNotRevertibleException e) {
+            // reverting records, tax records and recurring records can not be reverted
             return new ResponseEntity<>(HttpStatus.METHOD_NOT_ALLOWED);
-        RecordEntity recordEntity = recordEntityOptional.get();
-        RevertingRecordEntity revertingRecord = recordService.getRevertingRecord(recordEntity);
-        recordEntity.setRevertingRecord(revertingRecord);
-        recordRepository.save(recordEntity);
-        // TODO: should the reverting tax record be marked as tax record of the reverting record of the original record?
-        if (recordEntity.getTaxRecord() != null) {
-            TaxRecordEntity taxRecord = recordEntity.getTaxRecord();
-            RevertingRecordEntity revertingTaxRecord = recordService.getRevertingRecord(taxRecord);
-            taxRecord.setRevertingRecord(revertingTaxRecord);
-            recordRepository.save(taxRecord);
+        } catch (RecordAlreadyRevertedException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
-        return new ResponseEntity<>(
-                entityToComponentConverter.recordEntityToRecord(recordEntityOptional.get()),
-                HttpStatus.ACCEPTED);
     }
 
     @Override
     public ResponseEntity<Record> postRecord(NewRecord newRecord) {
         try {
             RecordEntity recordEntity = entityToComponentConverter.newRecordToRecordEntity(newRecord);
-            recordRepository.save(recordEntity);
+            JournalService journal = journalService.getIfAvailable();
+            if (journal != null) {
+                journal.postRecord(recordEntity);
+                return new ResponseEntity<>(HttpStatus.ACCEPTED);
+            }
+            recordService.postRecord(recordEntity);
             return new ResponseEntity<>(entityToComponentConverter.recordEntityToRecord(recordEntity), HttpStatus.CREATED);
-        } catch (AccountEntityNotFoundException e) {
+        } catch (AccountEntityNotFoundException | ArithmeticException e) {
+            // unknown accounts and amounts that are not representable in cents
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (JournalWriteException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // answers like the direct revert before the event is appended
+    private ResponseEntity<Record> revertThroughJournal(JournalService journal, Integer id) {
+        try {
+            if (recordService.findRevertible((long) id).isEmpty())
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            // the reverting record is created by the projector, so there is nothing to return yet
+            journal.revertRecord((long) id);
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        } catch (RecordNotRevertibleException e) {
+            return new ResponseEntity<>(HttpStatus.METHOD_NOT_ALLOWED);
+        } catch (RecordAlreadyRevertedException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (JournalWriteException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
     @Override
     public ResponseEntity<Void> postRecordsIdReceipt(Integer id, String name, MultipartFile receipt) {
-        return RecordsApiDelegate.super.postRecordsIdReceipt(id, name, receipt);
+        try {
+            if (receiptService.storeReceipt((long) id, name, receipt).isEmpty())
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(HttpStatus.CREATED);
+        } catch (IOException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
     }
 }
@@ -25,6 +25,7 @@ import lombok.experimental.SuperBuilder;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import java.util.ArrayList;
@@ -38,13 +39,14 @@ import java.util.Collection;
 @SuperBuilder
 @Entity
 @Table(name = "account")
+@EntityListeners(AccountEntityListener.class)
 public class AccountEntity extends BaseEntity {
     @OneToMany(mappedBy = "fromAccountEntity")
     @Singular
     @ToString.Exclude
     private Collection<RecordEntity> outgoingRecords = new ArrayList<>();
 
-    @OneToMany(mappedBy = "fromAccountEntity")
+    @OneToMany(mappedBy = "toAccountEntity")
     @Singular
     @ToString.Exclude
     private Collection<RecordEntity> incomingRecords = new ArrayList<>();
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.entity;
+
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.LedgerVersion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+@Component
+public class AccountEntityListener {
+
+    // resolved lazily, the listener is created while the entity manager factory is still being built
+    private final ObjectProvider<AccountCache> accountCache;
+
+    private final ObjectProvider<LedgerVersion> ledgerVersion;
+
+    public AccountEntityListener(ObjectProvider<AccountCache> accountCache, ObjectProvider<LedgerVersion> ledgerVersion) {
+        this.accountCache = accountCache;
+        this.ledgerVersion = ledgerVersion;
+    }
+
+    // the callbacks run in the flush, which can be the one of the commit
+    @PostPersist
+    public void accountCreated(AccountEntity accountEntity) {
+        ledgerVersion.ifAvailable(LedgerVersion::incrementWhileFlushing);
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void invalidateCachedAccount(AccountEntity accountEntity) {
+        accountCache.ifAvailable(cache -> cache.invalidate(accountEntity.getId()));
+        ledgerVersion.ifAvailable(LedgerVersion::incrementWhileFlushing);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.entity;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@SuperBuilder
+// only ever changed by postings that are booked into a closed period, see BalanceSnapshotService.adjust
+@Entity
+@Table(name = "balance_snapshot", uniqueConstraints = @UniqueConstraint(
+        name = "uk_balance_snapshot_account_period", columnNames = {"account_id", "period_end"}))
+public class BalanceSnapshotEntity extends BaseEntity {
+
+    public enum PeriodType {
+        MONTH,
+        YEAR
+    }
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "period_end", nullable = false)
+    private Date periodEnd;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type", nullable = false, length = 5)
+    private PeriodType periodType;
+
+    @Column(name = "incoming_total", nullable = false)
+    private Long incomingTotal;
+
+    @Column(name = "outgoing_total", nullable = false)
+    private Long outgoingTotal;
+
+    @CreationTimestamp
+    @Column(name = "creation_time", nullable = false)
+    private Timestamp creationTime;
+}
@@ -22,6 +22,9 @@ package com.wallumsystems.sas.entity;
 
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
@@ -33,7 +36,14 @@ import javax.persistence.*;
 @MappedSuperclass
 public class BaseEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_sequence")
+    // hands out blocks of ids per sequence call instead of one round trip per insert
+    @GenericGenerator(name = "pooled_sequence", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "hibernate_sequence"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+                    @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+            })
     @Column(name = "id", nullable = false)
     protected Long id;
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.entity;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+@SuperBuilder
+@Entity
+@Table(name = "reconciliation_match")
+public class ReconciliationMatchEntity extends BaseEntity {
+    @OneToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "record_id", nullable = false, unique = true)
+    @ToString.Exclude
+    private RecordEntity recordEntity;
+
+    @Column(name = "statement_date", nullable = false)
+    private Date statementDate;
+
+    @Column(name = "statement_amount", nullable = false)
+    // in minor units (cents), positive when the money came into the account
+    private Long statementAmount;
+
+    @Column(name = "statement_reference")
+    private String statementReference;
+
+    @Column(name = "statement_description")
+    private String statementDescription;
+
+    // null when the match was confirmed without a suggestion
+    @Column(name = "confidence")
+    private Double confidence;
+
+    @CreationTimestamp
+    @Column(name = "creation_time", nullable = false)
+    private Timestamp creationTime;
+}
@@ -36,7 +36,9 @@ import java.sql.Timestamp;
 @SuperBuilder
 @Entity
 @Table(name = "record")
-@Inheritance(strategy = InheritanceType.JOINED)
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "record_type")
+@DiscriminatorValue("RECORD")
 public class RecordEntity extends BaseEntity {
     @ManyToOne(optional = false)
     @JoinColumn(name = "from_account_id", nullable = false)
@@ -50,7 +52,8 @@ public class RecordEntity extends BaseEntity {
     private String description;
 
     @Column(name = "value", nullable = false)
-    private Double value;
+    // in minor units (cents)
+    private Long value;
 
     @Column(name = "booking_date", nullable = false)
     private Date bookingDate;
@@ -24,8 +24,8 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 import javax.persistence.Column;
+import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
-import javax.persistence.Table;
 import java.sql.Date;
 import java.sql.Timestamp;
 
@@ -36,12 +36,17 @@ import java.sql.Timestamp;
 @ToString
 @SuperBuilder
 @Entity
-@Table(name = "recurring_record")
+@DiscriminatorValue("RECURRING")
 public class RecurringRecordEntity extends RecordEntity {
 
-    @Column(name = "recurrence_interval", nullable = false)
+    // the columns are shared with every other record type in the single table, so they have to stay nullable
+    @Column(name = "recurrence_interval")
     private Timestamp recurrenceInterval;
 
-    @Column(name = "start_date", nullable = false)
+    @Column(name = "start_date")
     private Date startDate;
+
+    // booking date of the last occurrence that has been materialized, null if none has been yet
+    @Column(name = "materialized_until")
+    private Date materializedUntil;
 }
\ No newline at end of file
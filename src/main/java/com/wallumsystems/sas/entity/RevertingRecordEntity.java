@@ -32,9 +32,9 @@ import javax.persistence.*;
 @ToString
 @SuperBuilder
 @Entity
-@Table(name = "reverting_record")
-@Inheritance(strategy = InheritanceType.JOINED)
+@DiscriminatorValue("REVERTING")
 public class RevertingRecordEntity extends RecordEntity {
+    @ToString.Exclude
     @OneToOne(mappedBy = "revertingRecord", orphanRemoval = true)
     private RecordEntity recordEntity;
 }
\ No newline at end of file
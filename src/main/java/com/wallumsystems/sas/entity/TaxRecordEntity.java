@@ -32,9 +32,9 @@ import javax.persistence.*;
 @ToString
 @SuperBuilder
 @Entity
-@Table(name = "tax_record")
-@Inheritance(strategy = InheritanceType.JOINED)
+@DiscriminatorValue("TAX")
 public class TaxRecordEntity extends RecordEntity {
+    @ToString.Exclude
     @OneToOne(mappedBy = "taxRecord", orphanRemoval = true)
     private RecordEntity recordEntity;
 }
\ No newline at end of file
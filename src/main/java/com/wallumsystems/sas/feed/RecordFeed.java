@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.swagger.model.Record;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Subscribers are async requests, so an idle one holds no thread. Committing threads only put events into
+// bounded per-subscriber queues, a small dispatcher pool writes them out. A subscriber that falls further
+// behind than its queue is disconnected and catches up from the replay buffer when it reconnects.
+@Service
+public class RecordFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordFeed.class);
+
+    // events a dispatcher writes for one subscriber before it gives the others a turn
+    private static final int DRAIN_BATCH = 256;
+
+    private final EntityToComponentConverter entityToComponentConverter;
+
+    private final ObjectWriter recordWriter;
+
+    // ids of an earlier run can not be resumed, the epoch tells them apart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Object lock = new Object();
+
+    // guarded by lock, ring of the latest events indexed by sequence
+    private final FeedEvent[] replayBuffer;
+
+    // guarded by lock, sequence of the latest event
+    private long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final int subscriberQueueCapacity;
+
+    private final long timeoutMillis;
+
+    private final ExecutorService dispatcher;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final Counter droppedSubscribers;
+
+    public RecordFeed(EntityToComponentConverter entityToComponentConverter,
+                      ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry,
+                      @Value("${sas.feed.replay-size:10000}") int replaySize,
+                      @Value("${sas.feed.subscriber-queue-capacity:10000}") int subscriberQueueCapacity,
+                      @Value("${sas.feed.dispatcher-threads:4}") int dispatcherThreads,
+                      @Value("${sas.feed.timeout:30m}") Duration timeout,
+                      @Value("${sas.feed.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.entityToComponentConverter = entityToComponentConverter;
+        this.recordWriter = objectMapper.writerFor(Record.class);
+        this.replayBuffer = new FeedEvent[replaySize];
+        this.subscriberQueueCapacity = subscriberQueueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "record-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "record-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // comments keep proxies from closing idle connections and reveal clients that are gone
+        this.heartbeat.scheduleWithFixedDelay(this::sendHeartbeats,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("sas.feed.subscribers", subscribers, Set::size);
+        this.droppedSubscribers = Counter.builder("sas.feed.dropped")
+                .description("Subscribers disconnected because they fell behind")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber;
+        synchronized (lock) {
+            List<FeedEvent> replay = replayAfter(lastEventId);
+            subscriber = new Subscriber(emitter, subscriberQueueCapacity + (replay != null ? replay.size() : 1));
+            if (replay == null)
+                subscriber.queue.add(new FeedEvent(id(sequence), FeedEvent.RESET, "{}"));
+            else
+                subscriber.queue.addAll(replay);
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscriber.schedule();
+        return emitter;
+    }
+
+    // after the commit, so the feed never shows records that were rolled back
+    @TransactionalEventListener
+    public void onRecordsPosted(RecordsPostedEvent event) {
+        List<String> serializedRecords = new ArrayList<>(event.records().size());
+        for (RecordEntity recordEntity : event.records()) {
+            try {
+                serializedRecords.add(recordWriter.writeValueAsString(entityToComponentConverter.recordEntityToRecord(recordEntity)));
+            } catch (JsonProcessingException | RuntimeException e) {
+                // one record that can not be converted must not keep the rest of the commit from the feed
+                LOGGER.error("Record {} could not be serialized for the feed", recordEntity.getId(), e);
+            }
+        }
+        synchronized (lock) {
+            List<FeedEvent> feedEvents = new ArrayList<>(serializedRecords.size());
+            for (String serializedRecord : serializedRecords) {
+                FeedEvent feedEvent = new FeedEvent(id(++sequence), FeedEvent.RECORD, serializedRecord);
+                replayBuffer[(int) (sequence % replayBuffer.length)] = feedEvent;
+                feedEvents.add(feedEvent);
+            }
+            for (Subscriber subscriber : subscribers)
+                subscriber.offer(feedEvents);
+        }
+        for (Subscriber subscriber : subscribers)
+            subscriber.schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers)
+            subscriber.emitter.complete();
+    }
+
+    // guarded by lock, null if the client missed more than the buffer holds or comes from an earlier run
+    private List<FeedEvent> replayAfter(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank())
+            return List.of();
+        int separator = lastEventId.indexOf('-');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator)))
+            return null;
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (lastSequence > sequence || lastSequence < sequence - replayBuffer.length)
+            return null;
+        List<FeedEvent> replay = new ArrayList<>((int) (sequence - lastSequence));
+        for (long s = lastSequence + 1; s <= sequence; s++)
+            replay.add(replayBuffer[(int) (s % replayBuffer.length)]);
+        return replay;
+    }
+
+    private String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.isEmpty() && subscriber.queue.offer(FeedEvent.HEARTBEAT))
+                subscriber.schedule();
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            droppedSubscribers.increment();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        // linked, so thousands of idle subscribers do not each hold a preallocated array
+        private final BlockingQueue<FeedEvent> queue;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        // never blocks the committing thread
+        private void offer(List<FeedEvent> feedEvents) {
+            for (FeedEvent feedEvent : feedEvents) {
+                if (!queue.offer(feedEvent)) {
+                    drop(this);
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            if (subscribers.contains(this) && scheduled.compareAndSet(false, true))
+                dispatcher.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    FeedEvent feedEvent = queue.poll();
+                    if (feedEvent == null)
+                        break;
+                    if (feedEvent == FeedEvent.HEARTBEAT)
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    else
+                        emitter.send(SseEmitter.event()
+                                .id(feedEvent.id())
+                                .name(feedEvent.name())
+                                .data(feedEvent.data(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client is gone or the emitter has already been completed
+                subscribers.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty())
+                schedule();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.httpcache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallumsystems.sas.service.LedgerVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+// The listings only change when the ledger version does, so the version is their ETag. A matching
+// If-None-Match is answered before anything else runs, other requests may be served from the bodies
+// cached for the current version.
+// Every encoding of a listing is a representation of its own with an ETag of its own. Tomcat does not
+// compress responses with a strong ETag, so the gzip variant is compressed and cached here.
+@Component
+public class LedgerVersionETagFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private final LedgerVersion ledgerVersion;
+
+    private final List<String> paths;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final long replicaLagMillis;
+
+    private final long maxBodySize;
+
+    private final boolean compression;
+
+    private final long compressionMinSize;
+
+    private final Cache<String, CachedBody> bodies;
+
+    public LedgerVersionETagFilter(LedgerVersion ledgerVersion,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${sas.http-cache.paths:/records,/records/page,/accounts/balances,/accounts/*/balance,/accounts/*/balance/as-of}") List<String> paths,
+                                   @Value("${sas.http-cache.max-size:64MB}") DataSize maxSize,
+                                   @Value("${sas.http-cache.max-body-size:8MB}") DataSize maxBodySize,
+                                   @Value("${sas.http-cache.replica-lag:0s}") Duration replicaLag,
+                                   @Value("${server.compression.enabled:false}") boolean compression,
+                                   @Value("${server.compression.min-response-size:2KB}") DataSize compressionMinSize) {
+        this.ledgerVersion = ledgerVersion;
+        this.paths = paths;
+        this.replicaLagMillis = replicaLag.toMillis();
+        this.maxBodySize = maxBodySize.toBytes();
+        this.compression = compression;
+        this.compressionMinSize = compressionMinSize.toBytes();
+        // bodies of older versions are never hit again and are the first to be evicted
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedBody cachedBody) -> key.length() + cachedBody.body().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bodies, "http-bodies");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()))
+            return true;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // read before the handler queries, so a body is never tagged with a version newer than its data
+        long version = ledgerVersion.current();
+        String accept = Objects.requireNonNullElse(request.getHeader(HttpHeaders.ACCEPT), "*/*");
+        boolean gzip = compression && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = ledgerVersion.eTag(version, Integer.toHexString(accept.hashCode()) + (gzip ? "-" + GZIP : ""));
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            setValidators(response, eTag);
+            return;
+        }
+        String key = version + " " + accept + " " + gzip + " " + request.getRequestURI() + "?" + request.getQueryString();
+        CachedBody cachedBody = bodies.getIfPresent(key);
+        if (cachedBody != null) {
+            write(response, eTag, cachedBody);
+            return;
+        }
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, responseWrapper);
+        // errors such as an unknown account are neither tagged nor cached
+        if (responseWrapper.getStatus() != HttpStatus.OK.value() || request.isAsyncStarted()) {
+            responseWrapper.copyBodyToResponse();
+            return;
+        }
+        byte[] content = responseWrapper.getContentAsByteArray();
+        cachedBody = gzip && content.length >= compressionMinSize
+                ? new CachedBody(responseWrapper.getContentType(), GZIP, compress(content))
+                : new CachedBody(responseWrapper.getContentType(), null, content);
+        // a lagging replica could still have served the state before the latest change
+        if (content.length <= maxBodySize
+                && System.currentTimeMillis() - ledgerVersion.lastChangeMillis() >= replicaLagMillis)
+            bodies.put(key, cachedBody);
+        write(response, eTag, cachedBody);
+    }
+
+    private static void write(HttpServletResponse response, String eTag, CachedBody cachedBody) throws IOException {
+        setValidators(response, eTag);
+        response.setContentType(cachedBody.contentType());
+        if (cachedBody.contentEncoding() != null)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, cachedBody.contentEncoding());
+        response.setContentLength(cachedBody.body().length);
+        response.getOutputStream().write(cachedBody.body());
+    }
+
+    // clients have to revalidate, which costs them nothing but a 304 while the version stands
+    private static void setValidators(HttpServletResponse response, String eTag) {
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private static byte[] compress(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase(GZIP))
+                continue;
+            for (int i = 1; i < parts.length; i++)
+                if (parts[i].trim().replace(" ", "").matches("q=0(\\.0*)?"))
+                    return false;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/"))
+                trimmed = trimmed.substring(2);
+            if (trimmed.equals(eTag) || trimmed.equals("*"))
+                return true;
+        }
+        return false;
+    }
+}
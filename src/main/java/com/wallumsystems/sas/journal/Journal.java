@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// append-only log of memory mapped segment files. A frame is
+// [int payload length][int crc32c of sequence and payload][long sequence][payload],
+// a zero length marks the end of the written part of a segment.
+public class Journal implements Closeable {
+
+    static final int FRAME_HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final Thread flusher;
+
+    // guarded by this
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private long durableSequence;
+    private int flushedPosition;
+    private List<PendingAppend> pendingAppends = new ArrayList<>();
+    private boolean closed;
+
+    private record PendingAppend(long sequence, CompletableFuture<Long> durable) {
+    }
+
+    public Journal(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        TreeMap<Long, Path> segments = segments();
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            segment = createSegment(nextSequence);
+        } else {
+            segment = map(segments.lastEntry().getValue(), FileChannel.MapMode.READ_WRITE);
+            nextSequence = recover(segment, segments.lastKey());
+        }
+        durableSequence = nextSequence - 1;
+        flushedPosition = segment.position();
+        flusher = new Thread(this::flushPendingAppends, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // the future completes with the sequence of the event once the frame has been forced to disk
+    public CompletableFuture<Long> append(byte[] payload) throws IOException {
+        int frameSize = FRAME_HEADER_SIZE + payload.length;
+        if (frameSize + Integer.BYTES > segmentSize)
+            throw new IllegalArgumentException("Event of " + payload.length + " bytes does not fit into a segment");
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Journal is closed");
+            // there has to be room for the end marker after the frame
+            if (segment.remaining() < frameSize + Integer.BYTES)
+                rotate();
+            long sequence = nextSequence++;
+            int position = segment.position();
+            // the length is written last, so a reader never sees a frame with a partial payload as complete
+            segment.putInt(position + Integer.BYTES, checksum(sequence, payload));
+            segment.putLong(position + Integer.BYTES * 2, sequence);
+            segment.put(position + FRAME_HEADER_SIZE, payload);
+            segment.putInt(position, payload.length);
+            segment.position(position + frameSize);
+            pendingAppends.add(new PendingAppend(sequence, durable));
+            notifyAll();
+        }
+        return durable;
+    }
+
+    public synchronized long durableSequence() {
+        return durableSequence;
+    }
+
+    // returns false when the timeout elapsed before an event after the given sequence became durable
+    public synchronized boolean awaitDurable(long afterSequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (durableSequence <= afterSequence && !closed && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return durableSequence > afterSequence;
+    }
+
+    public JournalCursor openCursor(long afterSequence) {
+        return new JournalCursor(this, afterSequence);
+    }
+
+    // removes the segments whose events all have a sequence up to the given one, the current segment is kept
+    public void deleteSegmentsUpTo(long sequence) throws IOException {
+        TreeMap<Long, Path> segments = segments();
+        Long firstSequenceToKeep = segments.floorKey(sequence + 1);
+        if (firstSequenceToKeep == null)
+            return;
+        for (Path segmentFile : segments.headMap(firstSequenceToKeep).values())
+            Files.deleteIfExists(segmentFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segment.force();
+            completePendingAppends(nextSequence - 1);
+        }
+    }
+
+    TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            });
+        }
+        return segments;
+    }
+
+    MappedByteBuffer map(Path segmentFile, FileChannel.MapMode mapMode) throws IOException {
+        try (FileChannel channel = mapMode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(segmentFile, StandardOpenOption.READ)
+                : FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(mapMode, 0, segmentSize);
+        }
+    }
+
+    // reads the frame at the position of the buffer and advances it, null if there is no complete frame
+    static JournalRecord readFrame(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER_SIZE)
+            return null;
+        int payloadLength = buffer.getInt(position);
+        if (payloadLength <= 0 || payloadLength > buffer.remaining() - FRAME_HEADER_SIZE)
+            return null;
+        int checksum = buffer.getInt(position + Integer.BYTES);
+        long sequence = buffer.getLong(position + Integer.BYTES * 2);
+        byte[] payload = new byte[payloadLength];
+        buffer.get(position + FRAME_HEADER_SIZE, payload);
+        if (checksum(sequence, payload) != checksum)
+            return null;
+        buffer.position(position + FRAME_HEADER_SIZE + payloadLength);
+        return new JournalRecord(sequence, payload);
+    }
+
+    // finds the end of the last complete frame, everything after it was torn by a crash and is cleared
+    private static long recover(MappedByteBuffer segment, long firstSequence) {
+        long nextSequence = firstSequence;
+        JournalRecord journalRecord;
+        while ((journalRecord = readFrame(segment)) != null) {
+            if (journalRecord.sequence() != nextSequence)
+                throw new IllegalStateException("Journal sequence " + journalRecord.sequence()
+                        + " found where " + nextSequence + " was expected");
+            nextSequence++;
+        }
+        byte[] zeros = new byte[64 * 1024];
+        for (int position = segment.position(); position < segment.limit(); position += zeros.length)
+            segment.put(position, zeros, 0, Math.min(zeros.length, segment.limit() - position));
+        segment.force();
+        return nextSequence;
+    }
+
+    private void rotate() throws IOException {
+        // everything of the old segment is durable afterwards, including appends the flusher has not seen yet
+        segment.force();
+        completePendingAppends(nextSequence - 1);
+        segment = createSegment(nextSequence);
+        flushedPosition = 0;
+    }
+
+    private MappedByteBuffer createSegment(long firstSequence) throws IOException {
+        Path segmentFile = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(segmentFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mappedSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            channel.force(true);
+            forceDirectory();
+            return mappedSegment;
+        }
+    }
+
+    private void forceDirectory() {
+        // makes the new file name durable, not every platform allows opening a directory
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the segment content is forced anyway
+        }
+    }
+
+    private void flushPendingAppends() {
+        while (true) {
+            List<PendingAppend> batch;
+            MappedByteBuffer flushedSegment;
+            int from;
+            int to;
+            synchronized (this) {
+                while (pendingAppends.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingAppends.isEmpty())
+                    return;
+                // every append that arrived during the last force is forced together with the others
+                batch = pendingAppends;
+                pendingAppends = new ArrayList<>();
+                flushedSegment = segment;
+                from = flushedPosition;
+                to = segment.position();
+                flushedPosition = to;
+            }
+            try {
+                flushedSegment.force(from, to - from);
+                long lastSequence = batch.get(batch.size() - 1).sequence();
+                synchronized (this) {
+                    durableSequence = Math.max(durableSequence, lastSequence);
+                    notifyAll();
+                }
+                for (PendingAppend pendingAppend : batch)
+                    pendingAppend.durable().complete(pendingAppend.sequence());
+            } catch (UncheckedIOException e) {
+                for (PendingAppend pendingAppend : batch)
+                    pendingAppend.durable().completeExceptionally(e.getCause());
+            }
+        }
+    }
+
+    private void completePendingAppends(long lastSequence) {
+        durableSequence = Math.max(durableSequence, lastSequence);
+        for (PendingAppend pendingAppend : pendingAppends)
+            pendingAppend.durable().complete(pendingAppend.sequence());
+        pendingAppends = new ArrayList<>();
+        notifyAll();
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// compact binary form of the events, the layout must stay readable for journals written by older versions
+public final class JournalCodec {
+
+    private static final byte POST_RECORD = 1;
+    private static final byte REVERT_RECORD = 2;
+
+    private static final int NO_DESCRIPTION = -1;
+
+    private JournalCodec() {
+    }
+
+    public static byte[] encode(JournalEvent event) {
+        if (event instanceof JournalEvent.RevertRecord revertRecord)
+            return ByteBuffer.allocate(1 + Long.BYTES)
+                    .put(REVERT_RECORD)
+                    .putLong(revertRecord.recordId())
+                    .array();
+        JournalEvent.PostRecord postRecord = (JournalEvent.PostRecord) event;
+        byte[] description = bytesOf(postRecord.posting().description());
+        byte[] taxDescription = postRecord.taxPosting() != null ? bytesOf(postRecord.taxPosting().description()) : null;
+        int size = 1 + Long.BYTES + postingSize(description) + 1 + (postRecord.taxPosting() != null ? postingSize(taxDescription) : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(size)
+                .put(POST_RECORD)
+                .putLong(postRecord.bookingDate().toEpochDay());
+        putPosting(buffer, postRecord.posting(), description);
+        buffer.put((byte) (postRecord.taxPosting() != null ? 1 : 0));
+        if (postRecord.taxPosting() != null)
+            putPosting(buffer, postRecord.taxPosting(), taxDescription);
+        return buffer.array();
+    }
+
+    public static JournalEvent decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte type = buffer.get();
+        return switch (type) {
+            case REVERT_RECORD -> new JournalEvent.RevertRecord(buffer.getLong());
+            case POST_RECORD -> {
+                LocalDate bookingDate = LocalDate.ofEpochDay(buffer.getLong());
+                JournalEvent.Posting posting = getPosting(buffer);
+                JournalEvent.Posting taxPosting = buffer.get() != 0 ? getPosting(buffer) : null;
+                yield new JournalEvent.PostRecord(bookingDate, posting, taxPosting);
+            }
+            default -> throw new IllegalArgumentException("Unknown journal event type " + type);
+        };
+    }
+
+    private static int postingSize(byte[] description) {
+        return Long.BYTES * 3 + Integer.BYTES + (description != null ? description.length : 0);
+    }
+
+    private static void putPosting(ByteBuffer buffer, JournalEvent.Posting posting, byte[] description) {
+        buffer.putLong(posting.fromAccountId())
+                .putLong(posting.toAccountId())
+                .putLong(posting.value())
+                .putInt(description != null ? description.length : NO_DESCRIPTION);
+        if (description != null)
+            buffer.put(description);
+    }
+
+    private static JournalEvent.Posting getPosting(ByteBuffer buffer) {
+        long fromAccountId = buffer.getLong();
+        long toAccountId = buffer.getLong();
+        long value = buffer.getLong();
+        int descriptionLength = buffer.getInt();
+        String description = null;
+        if (descriptionLength != NO_DESCRIPTION) {
+            byte[] bytes = new byte[descriptionLength];
+            buffer.get(bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new JournalEvent.Posting(fromAccountId, toAccountId, value, description);
+    }
+
+    private static byte[] bytesOf(String description) {
+        return description != null ? description.getBytes(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// reads the durable events in order, not thread safe
+public class JournalCursor {
+
+    private final Journal journal;
+
+    private long lastSequence;
+
+    private long segmentFirstSequence;
+
+    private MappedByteBuffer segment;
+
+    JournalCursor(Journal journal, long afterSequence) {
+        this.journal = journal;
+        this.lastSequence = afterSequence;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public List<JournalRecord> next(int maxRecords) throws IOException {
+        long durableSequence = journal.durableSequence();
+        List<JournalRecord> journalRecords = new ArrayList<>();
+        while (journalRecords.size() < maxRecords && lastSequence < durableSequence) {
+            if (segment == null && !openSegment())
+                break;
+            int position = segment.position();
+            JournalRecord journalRecord = Journal.readFrame(segment);
+            if (journalRecord == null) {
+                // the end of this segment, the next event is in a later one
+                if (!openNextSegment())
+                    break;
+                continue;
+            }
+            if (journalRecord.sequence() > durableSequence) {
+                segment.position(position);
+                break;
+            }
+            if (journalRecord.sequence() > lastSequence) {
+                journalRecords.add(journalRecord);
+                lastSequence = journalRecord.sequence();
+            }
+        }
+        return journalRecords;
+    }
+
+    private boolean openSegment() throws IOException {
+        Map.Entry<Long, Path> segmentEntry = journal.segments().floorEntry(lastSequence + 1);
+        if (segmentEntry == null)
+            return false;
+        segmentFirstSequence = segmentEntry.getKey();
+        segment = journal.map(segmentEntry.getValue(), FileChannel.MapMode.READ_ONLY);
+        return true;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        Map.Entry<Long, Path> segmentEntry = journal.segments().higherEntry(segmentFirstSequence);
+        if (segmentEntry == null || segmentEntry.getKey() > lastSequence + 1)
+            return false;
+        segmentFirstSequence = segmentEntry.getKey();
+        segment = journal.map(segmentEntry.getValue(), FileChannel.MapMode.READ_ONLY);
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import com.wallumsystems.sas.component.BulkRevertResult;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import com.wallumsystems.sas.repository.JournalCheckpointRepository;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.RecordService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// applies journal events to the record tables, the checkpoint moves in the same transaction
+@Service
+@ConditionalOnProperty(name = "sas.journal.enabled", havingValue = "true")
+public class JournalProjection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalProjection.class);
+
+    private static final String UNKNOWN_ACCOUNT = "UNKNOWN_ACCOUNT";
+
+    private final RecordService recordService;
+
+    private final AccountCache accountCache;
+
+    private final JournalCheckpointRepository journalCheckpointRepository;
+
+    // by reason, registered up front so an alert on their increase sees them from zero
+    private final Map<String, Counter> skippedEvents = new HashMap<>();
+
+    public JournalProjection(RecordService recordService,
+                             AccountCache accountCache,
+                             JournalCheckpointRepository journalCheckpointRepository,
+                             MeterRegistry meterRegistry) {
+        this.recordService = recordService;
+        this.accountCache = accountCache;
+        this.journalCheckpointRepository = journalCheckpointRepository;
+        List<String> reasons = new ArrayList<>(List.of(UNKNOWN_ACCOUNT));
+        for (BulkRevertResult.Status status : BulkRevertResult.Status.values())
+            if (status != BulkRevertResult.Status.REVERTED)
+                reasons.add(status.name());
+        for (String reason : reasons)
+            skippedEvents.put(reason, Counter.builder("sas.journal.skipped")
+                    .description("Journal events that could not be applied")
+                    .tag("reason", reason)
+                    .register(meterRegistry));
+    }
+
+    @Transactional(readOnly = true)
+    public long appliedSequence() {
+        return journalCheckpointRepository.findAppliedSequence();
+    }
+
+    @Transactional
+    public void apply(List<JournalRecord> journalRecords) {
+        List<RecordEntity> recordEntities = new ArrayList<>();
+        List<Long> revertedIds = new ArrayList<>();
+        // consecutive events of the same kind are written together, the order between the kinds is kept
+        for (JournalRecord journalRecord : journalRecords) {
+            JournalEvent event = JournalCodec.decode(journalRecord.payload());
+            if (event instanceof JournalEvent.PostRecord postRecord) {
+                revertRecords(revertedIds);
+                toRecordEntity(postRecord).ifPresentOrElse(recordEntities::add, () -> {
+                    LOGGER.error("Skipped journal event {}, an account of the record does not exist", journalRecord.sequence());
+                    skipped(UNKNOWN_ACCOUNT);
+                });
+            } else if (event instanceof JournalEvent.RevertRecord revertRecord) {
+                postRecords(recordEntities);
+                revertedIds.add(revertRecord.recordId());
+            }
+        }
+        postRecords(recordEntities);
+        revertRecords(revertedIds);
+        journalCheckpointRepository.setAppliedSequence(journalRecords.get(journalRecords.size() - 1).sequence());
+    }
+
+    private void postRecords(List<RecordEntity> recordEntities) {
+        if (recordEntities.isEmpty())
+            return;
+        recordService.postRecords(recordEntities);
+        recordEntities.clear();
+    }
+
+    private void revertRecords(List<Long> revertedIds) {
+        if (revertedIds.isEmpty())
+            return;
+        for (BulkRevertResult result : recordService.revertRecords(revertedIds))
+            if (result.status() != BulkRevertResult.Status.REVERTED) {
+                LOGGER.error("Skipped the journaled revert of record {}: {}", result.id(), result.status());
+                skipped(result.status().name());
+            }
+        revertedIds.clear();
+    }
+
+    private Optional<RecordEntity> toRecordEntity(JournalEvent.PostRecord postRecord) {
+        Optional<AccountEntity> fromAccount = accountCache.findById(postRecord.posting().fromAccountId());
+        Optional<AccountEntity> toAccount = accountCache.findById(postRecord.posting().toAccountId());
+        if (fromAccount.isEmpty() || toAccount.isEmpty())
+            return Optional.empty();
+        RecordEntity recordEntity = RecordEntity.builder()
+                .description(postRecord.posting().description())
+                .fromAccountEntity(fromAccount.get())
+                .toAccountEntity(toAccount.get())
+                .value(postRecord.posting().value())
+                .bookingDate(Date.valueOf(postRecord.bookingDate()))
+                .build();
+        if (postRecord.taxPosting() != null) {
+            Optional<AccountEntity> taxFromAccount = accountCache.findById(postRecord.taxPosting().fromAccountId());
+            Optional<AccountEntity> taxToAccount = accountCache.findById(postRecord.taxPosting().toAccountId());
+            if (taxFromAccount.isEmpty() || taxToAccount.isEmpty())
+                return Optional.empty();
+            recordEntity.setTaxRecord(TaxRecordEntity.builder()
+                    .description(postRecord.taxPosting().description())
+                    .fromAccountEntity(taxFromAccount.get())
+                    .toAccountEntity(taxToAccount.get())
+                    .value(postRecord.taxPosting().value())
+                    .bookingDate(recordEntity.getBookingDate())
+                    .recordEntity(recordEntity)
+                    .build());
+        }
+        return Optional.of(recordEntity);
+    }
+
+    // The events were accepted before the projection could check them, so skipping them keeps the journal moving
+    // instead of blocking every later event. Any increase is a lost posting or revert and needs an alert.
+    private void skipped(String reason) {
+        skippedEvents.get(reason).increment();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+// applies the journal to the database in the background, starting with whatever was not applied before a restart
+@Component
+@ConditionalOnProperty(name = "sas.journal.enabled", havingValue = "true")
+public class JournalProjector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalProjector.class);
+
+    private static final long IDLE_WAIT_MILLIS = 1000;
+
+    private final Journal journal;
+
+    private final JournalProjection journalProjection;
+
+    private final int batchSize;
+
+    private final long retryDelayMillis;
+
+    private Thread projector;
+
+    // only used by the projector thread, null when it has to be positioned at the checkpoint again
+    private JournalCursor cursor;
+
+    public JournalProjector(Journal journal,
+                            JournalProjection journalProjection,
+                            @Value("${sas.journal.projector.batch-size:1000}") int batchSize,
+                            @Value("${sas.journal.projector.retry-delay:5s}") Duration retryDelay) {
+        this.journal = journal;
+        this.journalProjection = journalProjection;
+        this.batchSize = batchSize;
+        this.retryDelayMillis = retryDelay.toMillis();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        projector = new Thread(this::run, "journal-projector");
+        projector.setDaemon(true);
+        projector.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (projector == null)
+            return;
+        projector.interrupt();
+        projector.join();
+    }
+
+    // applies every durable event after the checkpoint, returns the sequence of the last applied event
+    long projectPending() throws IOException {
+        if (cursor == null)
+            cursor = journal.openCursor(journalProjection.appliedSequence());
+        List<JournalRecord> journalRecords;
+        while (!(journalRecords = cursor.next(batchSize)).isEmpty()) {
+            try {
+                journalProjection.apply(journalRecords);
+            } catch (RuntimeException e) {
+                // the batch has been rolled back, the next attempt starts at the checkpoint again
+                cursor = null;
+                throw e;
+            }
+            journal.deleteSegmentsUpTo(cursor.lastSequence());
+        }
+        return cursor.lastSequence();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long appliedSequence = projectPending();
+                journal.awaitDurable(appliedSequence, IDLE_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // nothing is skipped, the events stay in the journal until they could be applied
+                LOGGER.error("Applying the journal failed, retrying in {} ms", retryDelayMillis, e);
+                cursor = null;
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
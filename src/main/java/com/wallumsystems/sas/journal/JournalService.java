@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.JournalWriteException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// the write path in journal mode, a call returns once the event is durable in the journal
+@Service
+@ConditionalOnProperty(name = "sas.journal.enabled", havingValue = "true")
+public class JournalService {
+
+    private final Journal journal;
+
+    private final long appendTimeoutMillis;
+
+    public JournalService(Journal journal,
+                          @Value("${sas.journal.append-timeout:5s}") Duration appendTimeout) {
+        this.journal = journal;
+        this.appendTimeoutMillis = appendTimeout.toMillis();
+    }
+
+    public long postRecord(RecordEntity recordEntity) throws JournalWriteException {
+        return append(new JournalEvent.PostRecord(
+                recordEntity.getBookingDate().toLocalDate(),
+                postingOf(recordEntity),
+                recordEntity.getTaxRecord() != null ? postingOf(recordEntity.getTaxRecord()) : null));
+    }
+
+    public long revertRecord(Long recordId) throws JournalWriteException {
+        return append(new JournalEvent.RevertRecord(recordId));
+    }
+
+    private long append(JournalEvent event) throws JournalWriteException {
+        try {
+            return journal.append(JournalCodec.encode(event)).get(appendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            throw new JournalWriteException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JournalWriteException(e);
+        }
+    }
+
+    private static JournalEvent.Posting postingOf(RecordEntity recordEntity) {
+        return new JournalEvent.Posting(
+                recordEntity.getFromAccountEntity().getId(),
+                recordEntity.getToAccountEntity().getId(),
+                recordEntity.getValue(),
+                recordEntity.getDescription());
+    }
+}
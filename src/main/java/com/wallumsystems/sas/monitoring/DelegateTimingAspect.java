@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+// times every endpoint method of the generated API delegates, the tags keep the methods apart
+@Aspect
+@Component
+public class DelegateTimingAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    // the registry lookup builds the meter id on every call, the timers are looked up once per method and outcome
+    private final ConcurrentHashMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private record TimerKey(Method method, String outcome) {
+    }
+
+    public DelegateTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(org.springframework.http.ResponseEntity com.wallumsystems.sas.swagger.api.RecordsApiDelegate+.*(..)) " +
+            "|| execution(org.springframework.http.ResponseEntity com.wallumsystems.sas.swagger.api.PingApiDelegate+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "EXCEPTION";
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof ResponseEntity<?> responseEntity)
+                outcome = responseEntity.getStatusCode().series().name();
+            return result;
+        } finally {
+            sample.stop(timer(((MethodSignature) joinPoint.getSignature()).getMethod(), outcome));
+        }
+    }
+
+    private Timer timer(Method method, String outcome) {
+        return timers.computeIfAbsent(new TimerKey(method, outcome), key -> Timer.builder("sas.delegate")
+                .description("Duration of the API delegate methods")
+                .tag("delegate", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+// records the statements of every request and logs the ones slower than the threshold
+@Component
+public class RequestStatisticsFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestStatisticsFilter.class);
+
+    private final StatementCounter statementCounter;
+
+    private final DistributionSummary statementsPerRequest;
+
+    private final long slowRequestThresholdNanos;
+
+    public RequestStatisticsFilter(StatementCounter statementCounter,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${sas.monitoring.slow-request-threshold:500ms}") Duration slowRequestThreshold) {
+        this.statementCounter = statementCounter;
+        this.slowRequestThresholdNanos = slowRequestThreshold.toNanos();
+        this.statementsPerRequest = DistributionSummary.builder("sas.request.statements")
+                .description("SQL statements prepared per request")
+                .baseUnit("statements")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // statements of asynchronously written bodies run on other threads and are not counted
+        statementCounter.reset();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long duration = System.nanoTime() - start;
+            long statements = statementCounter.get();
+            statementCounter.reset();
+            statementsPerRequest.record(statements);
+            if (duration > slowRequestThresholdNanos)
+                LOGGER.warn("Slow request {} {} returned {} after {} ms with {} SQL statements",
+                        request.getMethod(), request.getRequestURI(), response.getStatus(),
+                        Duration.ofNanos(duration).toMillis(), statements);
+        }
+    }
+}
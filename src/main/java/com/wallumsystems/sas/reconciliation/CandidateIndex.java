@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reconciliation;
+
+import com.wallumsystems.sas.util.TextTokens;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+// The unreconciled records of one account ordered by signed amount and booking day. The hash index finds the run of
+// records with an amount in constant time, the booking days within a run are sorted so the date window is found by
+// binary search, and the sorted amounts give the runs within an amount tolerance.
+final class CandidateIndex {
+
+    record Entry(long id, long amount, int bookingDay, String description) {
+    }
+
+    final int size;
+
+    final long[] ids;
+
+    // positive for money that came into the account, like the statement amounts
+    final long[] amounts;
+
+    final int[] bookingDays;
+
+    final String[][] terms;
+
+    // the first position of every amount, and the end of the run for every position
+    private final Map<Long, Integer> runStarts;
+
+    private final int[] runEnds;
+
+    CandidateIndex(List<Entry> entries) {
+        List<Entry> sorted = entries.stream()
+                .sorted(Comparator.comparingLong(Entry::amount).thenComparingInt(Entry::bookingDay)
+                        .thenComparingLong(Entry::id))
+                .toList();
+        size = sorted.size();
+        ids = new long[size];
+        amounts = new long[size];
+        bookingDays = new int[size];
+        terms = new String[size][];
+        runStarts = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+        runEnds = new int[size];
+        for (int position = 0; position < size; position++) {
+            Entry entry = sorted.get(position);
+            ids[position] = entry.id();
+            amounts[position] = entry.amount();
+            bookingDays[position] = entry.bookingDay();
+            terms[position] = TextTokens.tokenize(entry.description()).toArray(String[]::new);
+            runStarts.putIfAbsent(entry.amount(), position);
+        }
+        for (int position = size - 1; position >= 0; position--)
+            runEnds[position] = position + 1 < size && amounts[position + 1] == amounts[position]
+                    ? runEnds[position + 1] : position + 1;
+    }
+
+    // visits the position of every record within the tolerance of the amount and the window around the day
+    void forEachCandidate(long amount, long tolerance, int bookingDay, int window, IntConsumer visitor) {
+        if (tolerance == 0) {
+            Integer start = runStarts.get(amount);
+            if (start != null)
+                visitRun(start, runEnds[start], bookingDay, window, visitor);
+            return;
+        }
+        long highest = amount + tolerance;
+        int position = firstAmountAtLeast(amount - tolerance);
+        while (position < size && amounts[position] <= highest) {
+            int end = runEnds[position];
+            visitRun(position, end, bookingDay, window, visitor);
+            position = end;
+        }
+    }
+
+    private void visitRun(int start, int end, int bookingDay, int window, IntConsumer visitor) {
+        int lastDay = bookingDay + window;
+        for (int position = firstDayAtLeast(start, end, bookingDay - window);
+             position < end && bookingDays[position] <= lastDay; position++)
+            visitor.accept(position);
+    }
+
+    private int firstAmountAtLeast(long amount) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (amounts[middle] < amount)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int firstDayAtLeast(int low, int high, int bookingDay) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bookingDays[middle] < bookingDay)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reconciliation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Scores the records of a candidate index against statement lines. Every line only looks at the records the index
+// returns for its amount and date window, so the work grows with the number of lines and not with lines times records.
+final class ReconciliationMatcher {
+
+    private static final int MIN_SLICE = 256;
+
+    record Line(long amount, int bookingDay, Set<String> terms) {
+    }
+
+    record Candidate(int position, double confidence) {
+    }
+
+    private record Pair(int line, Candidate candidate) {
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator.comparingDouble(Candidate::confidence).reversed()
+            .thenComparingInt(Candidate::position);
+
+    private final long amountTolerance;
+
+    private final int dateWindow;
+
+    private final double amountWeight;
+
+    private final double dateWeight;
+
+    private final double descriptionWeight;
+
+    private final double minConfidence;
+
+    private final int maxCandidates;
+
+    ReconciliationMatcher(long amountTolerance, int dateWindow, double amountWeight, double dateWeight,
+                          double descriptionWeight, double minConfidence, int maxCandidates) {
+        double totalWeight = amountWeight + dateWeight + descriptionWeight;
+        if (amountTolerance < 0 || dateWindow < 0 || totalWeight <= 0 || maxCandidates < 1)
+            throw new IllegalArgumentException("invalid reconciliation settings");
+        this.amountTolerance = amountTolerance;
+        this.dateWindow = dateWindow;
+        this.amountWeight = amountWeight / totalWeight;
+        this.dateWeight = dateWeight / totalWeight;
+        this.descriptionWeight = descriptionWeight / totalWeight;
+        this.minConfidence = minConfidence;
+        this.maxCandidates = maxCandidates;
+    }
+
+    // the best candidates of every line, best first
+    Candidate[][] match(ForkJoinPool forkJoinPool, CandidateIndex index, List<Line> lines) {
+        Candidate[][] candidates = new Candidate[lines.size()][];
+        int threshold = Math.max(MIN_SLICE, lines.size() / (forkJoinPool.getParallelism() * 4));
+        forkJoinPool.invoke(new MatchTask(index, lines, candidates, 0, lines.size(), threshold));
+        return candidates;
+    }
+
+    // Greedy one to one assignment, the most confident pairs first and the earlier line on a tie. Returns the
+    // candidate chosen for every line, or null for a line whose candidates all went to more confident lines.
+    static Candidate[] assign(Candidate[][] candidates) {
+        List<Pair> pairs = new ArrayList<>();
+        for (int line = 0; line < candidates.length; line++)
+            for (Candidate candidate : candidates[line])
+                pairs.add(new Pair(line, candidate));
+        pairs.sort(Comparator.comparingDouble((Pair pair) -> pair.candidate().confidence()).reversed()
+                .thenComparingInt(Pair::line).thenComparingInt(pair -> pair.candidate().position()));
+        Candidate[] assigned = new Candidate[candidates.length];
+        BitSet taken = new BitSet();
+        for (Pair pair : pairs) {
+            if (assigned[pair.line()] != null || taken.get(pair.candidate().position()))
+                continue;
+            assigned[pair.line()] = pair.candidate();
+            taken.set(pair.candidate().position());
+        }
+        return assigned;
+    }
+
+    double confidence(CandidateIndex index, int position, Line line) {
+        double amountScore = 1.0 - (double) Math.abs(index.amounts[position] - line.amount()) / (amountTolerance + 1);
+        double dateScore = 1.0 - (double) Math.abs(index.bookingDays[position] - line.bookingDay()) / (dateWindow + 1);
+        return amountWeight * amountScore + dateWeight * dateScore
+                + descriptionWeight * descriptionScore(index.terms[position], line.terms());
+    }
+
+    // the share of the words of the record found on the line, the bank adds enough words of its own that the
+    // share of the line found in the record says little
+    private static double descriptionScore(String[] recordTerms, Set<String> lineTerms) {
+        if (recordTerms.length == 0 || lineTerms.isEmpty())
+            return 0.0;
+        int found = 0;
+        for (String term : recordTerms)
+            if (lineTerms.contains(term))
+                found++;
+        return (double) found / recordTerms.length;
+    }
+
+    private Candidate[] bestCandidates(CandidateIndex index, Line line) {
+        Candidate[] best = new Candidate[maxCandidates];
+        int[] count = new int[1];
+        index.forEachCandidate(line.amount(), amountTolerance, line.bookingDay(), dateWindow, position -> {
+            double confidence = confidence(index, position, line);
+            if (confidence < minConfidence)
+                return;
+            Candidate candidate = new Candidate(position, confidence);
+            if (count[0] == maxCandidates && BEST_FIRST.compare(candidate, best[count[0] - 1]) >= 0)
+                return;
+            // insertion into the few best, the last one falls out when they are full
+            int slot = Math.min(count[0], maxCandidates - 1);
+            while (slot > 0 && BEST_FIRST.compare(candidate, best[slot - 1]) < 0) {
+                best[slot] = best[slot - 1];
+                slot--;
+            }
+            best[slot] = candidate;
+            if (count[0] < maxCandidates)
+                count[0]++;
+        });
+        return Arrays.copyOf(best, count[0]);
+    }
+
+    private final class MatchTask extends RecursiveAction {
+
+        private final CandidateIndex index;
+
+        private final List<Line> lines;
+
+        private final Candidate[][] candidates;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        MatchTask(CandidateIndex index, List<Line> lines, Candidate[][] candidates, int from, int to, int threshold) {
+            this.index = index;
+            this.lines = lines;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int line = from; line < to; line++)
+                    candidates[line] = bestCandidates(index, lines.get(line));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MatchTask(index, lines, candidates, from, middle, threshold),
+                    new MatchTask(index, lines, candidates, middle, to, threshold));
+        }
+    }
+}
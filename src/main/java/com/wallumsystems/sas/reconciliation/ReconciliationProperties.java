@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reconciliation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sas.reconciliation")
+public class ReconciliationProperties {
+
+    // how many days the booking date of a record may be away from the one of the statement line
+    private int dateWindowDays = 3;
+
+    // how far the amount of a record may be away from the one of the statement line, fees and rounding
+    private BigDecimal amountTolerance = BigDecimal.ZERO;
+
+    private double minConfidence = 0.5;
+
+    private int maxCandidates = 3;
+
+    private int maxLines = 1_000_000;
+
+    // confirmed matches are committed in chunks of this size
+    private int chunkSize = 1000;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Weights weights = new Weights();
+
+    // relative, the confidence is the weighted mean of the three scores
+    @Getter
+    @Setter
+    public static class Weights {
+        private double amount = 0.5;
+        private double date = 0.25;
+        private double description = 0.25;
+    }
+}
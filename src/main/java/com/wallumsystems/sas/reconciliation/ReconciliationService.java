@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reconciliation;
+
+import com.wallumsystems.sas.component.ReconciliationConfirmation;
+import com.wallumsystems.sas.component.ReconciliationRequest;
+import com.wallumsystems.sas.component.ReconciliationResult;
+import com.wallumsystems.sas.component.ReconciliationSuggestion;
+import com.wallumsystems.sas.component.StatementLine;
+import com.wallumsystems.sas.entity.ReconciliationMatchEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.repository.ReconcilableRecord;
+import com.wallumsystems.sas.repository.ReconciliationMatchRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.util.MinorUnits;
+import com.wallumsystems.sas.util.TextTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Matches bank statement lines against the unreconciled records of the bank account. The records of the statement
+// period are loaded into a candidate index once per request, the lines are then matched in parallel against it.
+@Service
+public class ReconciliationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private final ReconciliationMatchRepository reconciliationMatchRepository;
+
+    private final RecordRepository recordRepository;
+
+    private final AccountCache accountCache;
+
+    private final ReconciliationProperties reconciliationProperties;
+
+    private final TransactionTemplate transaction;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ForkJoinPool forkJoinPool;
+
+    public ReconciliationService(ReconciliationMatchRepository reconciliationMatchRepository,
+                                 RecordRepository recordRepository,
+                                 AccountCache accountCache,
+                                 ReconciliationProperties reconciliationProperties,
+                                 PlatformTransactionManager transactionManager) {
+        this.reconciliationMatchRepository = reconciliationMatchRepository;
+        this.recordRepository = recordRepository;
+        this.accountCache = accountCache;
+        this.reconciliationProperties = reconciliationProperties;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        int parallelism = reconciliationProperties.getParallelism();
+        this.forkJoinPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    // the lines must carry a booking date and an amount in cents, the controller checks that
+    public List<ReconciliationSuggestion> suggest(ReconciliationRequest request) throws AccountEntityNotFoundException {
+        Long accountId = request.accountId().longValue();
+        if (accountCache.findById(accountId).isEmpty())
+            throw new AccountEntityNotFoundException();
+        int dateWindow = request.dateWindowDays() != null
+                ? request.dateWindowDays() : reconciliationProperties.getDateWindowDays();
+        long amountTolerance = MinorUnits.fromBigDecimal(request.amountTolerance() != null
+                ? request.amountTolerance() : reconciliationProperties.getAmountTolerance());
+        ReconciliationProperties.Weights weights = reconciliationProperties.getWeights();
+        ReconciliationMatcher matcher = new ReconciliationMatcher(amountTolerance, dateWindow, weights.getAmount(),
+                weights.getDate(), weights.getDescription(), reconciliationProperties.getMinConfidence(),
+                reconciliationProperties.getMaxCandidates());
+        if (request.lines().isEmpty())
+            return List.of();
+
+        long start = System.nanoTime();
+        List<ReconciliationMatcher.Line> lines = new ArrayList<>(request.lines().size());
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        for (StatementLine statementLine : request.lines()) {
+            int bookingDay = (int) statementLine.bookingDate().toEpochDay();
+            firstDay = Math.min(firstDay, bookingDay);
+            lastDay = Math.max(lastDay, bookingDay);
+            lines.add(new ReconciliationMatcher.Line(MinorUnits.fromBigDecimal(statementLine.amount()), bookingDay,
+                    new HashSet<>(TextTokens.tokenize(textOf(statementLine)))));
+        }
+        CandidateIndex index = loadCandidates(accountId,
+                Date.valueOf(LocalDate.ofEpochDay(firstDay - dateWindow)),
+                Date.valueOf(LocalDate.ofEpochDay(lastDay + dateWindow)));
+        ReconciliationMatcher.Candidate[][] candidates = matcher.match(forkJoinPool, index, lines);
+        ReconciliationMatcher.Candidate[] assigned = ReconciliationMatcher.assign(candidates);
+
+        List<ReconciliationSuggestion> suggestions = new ArrayList<>(lines.size());
+        int suggested = 0;
+        for (int line = 0; line < lines.size(); line++) {
+            List<ReconciliationSuggestion.Candidate> lineCandidates = new ArrayList<>(candidates[line].length);
+            for (ReconciliationMatcher.Candidate candidate : candidates[line])
+                lineCandidates.add(new ReconciliationSuggestion.Candidate(
+                        Math.toIntExact(index.ids[candidate.position()]), rounded(candidate.confidence())));
+            ReconciliationMatcher.Candidate match = assigned[line];
+            if (match != null)
+                suggested++;
+            suggestions.add(new ReconciliationSuggestion(line,
+                    match != null ? Math.toIntExact(index.ids[match.position()]) : null,
+                    match != null ? rounded(match.confidence()) : null,
+                    lineCandidates));
+        }
+        LOGGER.info("Suggested matches for {} of {} statement lines against {} unreconciled records of account {} in {} ms",
+                suggested, lines.size(), index.size, accountId, (System.nanoTime() - start) / 1_000_000);
+        return suggestions;
+    }
+
+    // every chunk is committed on its own, a failing chunk does not roll back the ones before it
+    public List<ReconciliationResult> confirm(ReconciliationConfirmation confirmation) throws AccountEntityNotFoundException {
+        Long accountId = confirmation.accountId().longValue();
+        if (accountCache.findById(accountId).isEmpty())
+            throw new AccountEntityNotFoundException();
+        List<ReconciliationConfirmation.Match> matches = confirmation.matches();
+        List<ReconciliationResult> results = new ArrayList<>(matches.size());
+        // a record confirmed twice in one request is rejected the second time, whichever chunk it is in
+        Set<Long> confirmedRecordIds = new HashSet<>();
+        int chunkSize = reconciliationProperties.getChunkSize();
+        for (int from = 0; from < matches.size(); from += chunkSize) {
+            List<ReconciliationConfirmation.Match> chunk = matches.subList(from, Math.min(from + chunkSize, matches.size()));
+            int firstIndex = from;
+            try {
+                results.addAll(Objects.requireNonNull(transaction.execute(
+                        status -> confirmChunk(accountId, chunk, firstIndex, confirmedRecordIds))));
+            } catch (RuntimeException e) {
+                // the chunk has been rolled back as a whole, most likely a concurrent confirmation of the same record
+                for (int i = 0; i < chunk.size(); i++)
+                    results.add(ReconciliationResult.failed(firstIndex + i, chunk.get(i).recordId(), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private List<ReconciliationResult> confirmChunk(Long accountId,
+                                                    List<ReconciliationConfirmation.Match> chunk,
+                                                    int firstIndex,
+                                                    Set<Long> confirmedRecordIds) {
+        Set<Long> recordIds = chunk.stream()
+                .map(ReconciliationConfirmation.Match::recordId)
+                .filter(Objects::nonNull)
+                .map(Integer::longValue)
+                .collect(Collectors.toSet());
+        Map<Long, ReconcilableRecord> records = recordIds.isEmpty() ? Map.of()
+                : reconciliationMatchRepository.findReconcilableByIds(recordIds).stream()
+                .collect(Collectors.toMap(ReconcilableRecord::id, Function.identity()));
+        Set<Long> reconciledRecordIds = recordIds.isEmpty() ? Set.of()
+                : new HashSet<>(reconciliationMatchRepository.findReconciledRecordIds(recordIds));
+
+        List<ReconciliationResult> results = new ArrayList<>(chunk.size());
+        List<ReconciliationMatchEntity> matchEntities = new ArrayList<>(chunk.size());
+        Set<Long> chunkRecordIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            ReconciliationConfirmation.Match match = chunk.get(i);
+            Integer recordId = match.recordId();
+            StatementLine line = match.line();
+            if (recordId == null || line == null || line.bookingDate() == null || line.amount() == null) {
+                results.add(ReconciliationResult.rejected(firstIndex + i, recordId,
+                        "Record id, booking date and amount are required"));
+                continue;
+            }
+            ReconcilableRecord record = records.get(recordId.longValue());
+            if (record == null) {
+                results.add(ReconciliationResult.rejected(firstIndex + i, recordId,
+                        "Unknown record or record cannot be reconciled"));
+                continue;
+            }
+            if (!accountId.equals(record.fromAccountId()) && !accountId.equals(record.toAccountId())) {
+                results.add(ReconciliationResult.rejected(firstIndex + i, recordId,
+                        "Record does not belong to the account"));
+                continue;
+            }
+            if (reconciledRecordIds.contains(record.id()) || confirmedRecordIds.contains(record.id())
+                    || !chunkRecordIds.add(record.id())) {
+                results.add(ReconciliationResult.rejected(firstIndex + i, recordId, "Record is already reconciled"));
+                continue;
+            }
+            long amount;
+            try {
+                amount = MinorUnits.fromBigDecimal(line.amount());
+            } catch (ArithmeticException e) {
+                results.add(ReconciliationResult.rejected(firstIndex + i, recordId,
+                        "Amount is not representable in cents"));
+                chunkRecordIds.remove(record.id());
+                continue;
+            }
+            matchEntities.add(ReconciliationMatchEntity.builder()
+                    .recordEntity(recordRepository.getById(record.id()))
+                    .statementDate(Date.valueOf(line.bookingDate()))
+                    .statementAmount(amount)
+                    .statementReference(line.reference())
+                    .statementDescription(line.description())
+                    .confidence(match.confidence())
+                    .build());
+            results.add(ReconciliationResult.reconciled(firstIndex + i, record.id()));
+        }
+        reconciliationMatchRepository.saveAll(matchEntities);
+        // flushed here so a duplicate key fails this chunk and not the commit
+        reconciliationMatchRepository.flush();
+        confirmedRecordIds.addAll(chunkRecordIds);
+        return results;
+    }
+
+    private CandidateIndex loadCandidates(Long accountId, Date from, Date until) {
+        return readOnlyTransaction.execute(status -> {
+            List<CandidateIndex.Entry> entries = new ArrayList<>();
+            try (Stream<ReconcilableRecord> incoming =
+                         reconciliationMatchRepository.streamUnreconciledIncoming(accountId, from, until)) {
+                incoming.forEach(record -> entries.add(entryOf(record, record.value())));
+            }
+            try (Stream<ReconcilableRecord> outgoing =
+                         reconciliationMatchRepository.streamUnreconciledOutgoing(accountId, from, until)) {
+                // a transfer within the account never shows up on a statement, it is only taken in once
+                outgoing.filter(record -> !accountId.equals(record.toAccountId()))
+                        .forEach(record -> entries.add(entryOf(record, -record.value())));
+            }
+            return new CandidateIndex(entries);
+        });
+    }
+
+    private static CandidateIndex.Entry entryOf(ReconcilableRecord record, long amount) {
+        return new CandidateIndex.Entry(record.id(), amount, (int) record.bookingDate().toLocalDate().toEpochDay(),
+                record.description());
+    }
+
+    private static String textOf(StatementLine statementLine) {
+        return Stream.of(statementLine.reference(), statementLine.description())
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(" "));
+    }
+
+    private static double rounded(double confidence) {
+        return Math.round(confidence * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import java.util.concurrent.RecursiveAction;
+
+// like AccountTotalsTask, but bucketed by booking month: slot 2 * ((month - firstMonth) * accountCount + account)
+final class AccountPeriodTotalsTask extends RecursiveAction {
+
+    private final Ledger ledger;
+
+    private final int from;
+
+    private final int to;
+
+    private final int firstMonth;
+
+    private final int lastMonth;
+
+    private final int threshold;
+
+    private final WorkerTotals workerTotals;
+
+    AccountPeriodTotalsTask(Ledger ledger, int from, int to, int firstMonth, int lastMonth, int threshold, WorkerTotals workerTotals) {
+        this.ledger = ledger;
+        this.from = from;
+        this.to = to;
+        this.firstMonth = firstMonth;
+        this.lastMonth = lastMonth;
+        this.threshold = threshold;
+        this.workerTotals = workerTotals;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            computeDirectly();
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new AccountPeriodTotalsTask(ledger, from, middle, firstMonth, lastMonth, threshold, workerTotals),
+                new AccountPeriodTotalsTask(ledger, middle, to, firstMonth, lastMonth, threshold, workerTotals));
+    }
+
+    private void computeDirectly() {
+        int accountCount = ledger.accountCount;
+        long[] totals = workerTotals.ofCurrentThread();
+        int[] fromAccounts = ledger.fromAccounts;
+        int[] toAccounts = ledger.toAccounts;
+        int[] bookingMonths = ledger.bookingMonths;
+        long[] amounts = ledger.amounts;
+        for (int i = from; i < to; i++) {
+            int bookingMonth = bookingMonths[i];
+            if (bookingMonth < firstMonth || bookingMonth > lastMonth)
+                continue;
+            int periodOffset = (bookingMonth - firstMonth) * accountCount;
+            long amount = amounts[i];
+            totals[2 * (periodOffset + toAccounts[i])] += amount;
+            totals[2 * (periodOffset + fromAccounts[i]) + 1] += amount;
+        }
+    }
+}
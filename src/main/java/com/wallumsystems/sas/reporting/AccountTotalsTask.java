@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import java.util.concurrent.RecursiveAction;
+
+// sums incoming (even slots) and outgoing (odd slots) amounts per account over a booking day range
+final class AccountTotalsTask extends RecursiveAction {
+
+    private final Ledger ledger;
+
+    private final int from;
+
+    private final int to;
+
+    private final int firstDay;
+
+    private final int lastDay;
+
+    private final int threshold;
+
+    private final WorkerTotals workerTotals;
+
+    AccountTotalsTask(Ledger ledger, int from, int to, int firstDay, int lastDay, int threshold, WorkerTotals workerTotals) {
+        this.ledger = ledger;
+        this.from = from;
+        this.to = to;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.threshold = threshold;
+        this.workerTotals = workerTotals;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            computeDirectly();
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new AccountTotalsTask(ledger, from, middle, firstDay, lastDay, threshold, workerTotals),
+                new AccountTotalsTask(ledger, middle, to, firstDay, lastDay, threshold, workerTotals));
+    }
+
+    private void computeDirectly() {
+        long[] totals = workerTotals.ofCurrentThread();
+        int[] fromAccounts = ledger.fromAccounts;
+        int[] toAccounts = ledger.toAccounts;
+        int[] bookingDays = ledger.bookingDays;
+        long[] amounts = ledger.amounts;
+        for (int i = from; i < to; i++) {
+            int bookingDay = bookingDays[i];
+            if (bookingDay < firstDay || bookingDay > lastDay)
+                continue;
+            long amount = amounts[i];
+            totals[2 * toAccounts[i]] += amount;
+            totals[2 * fromAccounts[i] + 1] += amount;
+        }
+    }
+}
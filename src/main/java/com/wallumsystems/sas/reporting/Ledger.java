@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+// immutable view of the first size entries of the ledger columns, accounts are stored as dense indexes
+final class Ledger {
+
+    final int size;
+
+    final int[] fromAccounts;
+
+    final int[] toAccounts;
+
+    // days since 1970-01-01
+    final int[] bookingDays;
+
+    // year * 12 + month - 1
+    final int[] bookingMonths;
+
+    // minor units of the currency
+    final long[] amounts;
+
+    final int accountCount;
+
+    // dense account index to account id
+    final long[] accountIds;
+
+    Ledger(int size, int[] fromAccounts, int[] toAccounts, int[] bookingDays, int[] bookingMonths, long[] amounts,
+           int accountCount, long[] accountIds) {
+        this.size = size;
+        this.fromAccounts = fromAccounts;
+        this.toAccounts = toAccounts;
+        this.bookingDays = bookingDays;
+        this.bookingMonths = bookingMonths;
+        this.amounts = amounts;
+        this.accountCount = accountCount;
+        this.accountIds = accountIds;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.repository.LedgerEntry;
+import com.wallumsystems.sas.repository.RecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// keeps every record as primitive columns in memory, loaded once and then appended to on every commit
+@Service
+public class LedgerEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private final RecordRepository recordRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+
+    private final int initialCapacity;
+
+    private final Object lock = new Object();
+
+    private volatile Ledger ledger;
+
+    // guarded by lock, collects the commits that happen while the ledger is loaded, null afterwards
+    private List<RecordEntity> pendingRecords = new ArrayList<>();
+
+    // guarded by lock
+    private LedgerWriter writer;
+
+    public LedgerEngine(RecordRepository recordRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${sas.reporting.enabled:true}") boolean enabled,
+                        @Value("${sas.reporting.initial-capacity:1048576}") int initialCapacity) {
+        this.recordRepository = recordRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.initialCapacity = initialCapacity;
+        if (!enabled)
+            pendingRecords = null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled)
+            return;
+        Thread loader = new Thread(this::load, "ledger-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener
+    public void onRecordsPosted(RecordsPostedEvent event) {
+        synchronized (lock) {
+            if (writer != null) {
+                for (RecordEntity recordEntity : event.records())
+                    append(writer, recordEntity);
+                ledger = writer.publish();
+            } else if (pendingRecords != null) {
+                pendingRecords.addAll(event.records());
+            }
+        }
+    }
+
+    Ledger getLedger() throws LedgerNotLoadedException {
+        Ledger current = ledger;
+        if (current == null)
+            throw new LedgerNotLoadedException();
+        return current;
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        LedgerWriter loadingWriter = new LedgerWriter(initialCapacity);
+        LoadedIds loadedIds;
+        try {
+            loadedIds = readOnlyTransaction.execute(status -> loadInto(loadingWriter));
+        } catch (RuntimeException e) {
+            LOGGER.error("Loading the reporting ledger failed, reports stay unavailable", e);
+            synchronized (lock) {
+                pendingRecords = null;
+            }
+            return;
+        }
+        synchronized (lock) {
+            // a record committed right before the load started can be both loaded and pending
+            for (RecordEntity pendingRecord : pendingRecords)
+                if (!loadedIds.contains(pendingRecord.getId()))
+                    append(loadingWriter, pendingRecord);
+            pendingRecords = null;
+            writer = loadingWriter;
+            ledger = writer.publish();
+        }
+        LOGGER.info("Loaded {} records into the reporting ledger in {} ms",
+                ledger.size, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private LoadedIds loadInto(LedgerWriter loadingWriter) {
+        LoadedIds loadedIds = new LoadedIds(initialCapacity);
+        try (Stream<LedgerEntry> ledgerEntries = recordRepository.streamLedgerEntries()) {
+            Iterator<LedgerEntry> iterator = ledgerEntries.iterator();
+            while (iterator.hasNext()) {
+                LedgerEntry ledgerEntry = iterator.next();
+                loadedIds.add(ledgerEntry.id());
+                loadingWriter.append(ledgerEntry.fromAccountId(), ledgerEntry.toAccountId(),
+                        ledgerEntry.bookingDate().toLocalDate(), ledgerEntry.value());
+            }
+        }
+        return loadedIds;
+    }
+
+    private static void append(LedgerWriter ledgerWriter, RecordEntity recordEntity) {
+        ledgerWriter.append(recordEntity.getFromAccountEntity().getId(), recordEntity.getToAccountEntity().getId(),
+                recordEntity.getBookingDate().toLocalDate(), recordEntity.getValue());
+    }
+
+    // ids in load order, which is ascending
+    private static final class LoadedIds {
+
+        private long[] ids;
+
+        private int count;
+
+        private LoadedIds(int initialCapacity) {
+            ids = new long[Math.max(16, initialCapacity)];
+        }
+
+        private void add(long id) {
+            if (count == ids.length)
+                ids = Arrays.copyOf(ids, count + (count >> 1));
+            ids[count++] = id;
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, count, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// appends to the columns in place, published ledgers never see entries beyond their own size
+final class LedgerWriter {
+
+    private int size;
+
+    private int[] fromAccounts;
+
+    private int[] toAccounts;
+
+    private int[] bookingDays;
+
+    private int[] bookingMonths;
+
+    private long[] amounts;
+
+    private final Map<Long, Integer> accountIndexes = new HashMap<>();
+
+    private long[] accountIds = new long[64];
+
+    LedgerWriter(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        fromAccounts = new int[capacity];
+        toAccounts = new int[capacity];
+        bookingDays = new int[capacity];
+        bookingMonths = new int[capacity];
+        amounts = new long[capacity];
+    }
+
+    void append(long fromAccountId, long toAccountId, LocalDate bookingDate, long amount) {
+        if (size == amounts.length)
+            grow();
+        fromAccounts[size] = indexOf(fromAccountId);
+        toAccounts[size] = indexOf(toAccountId);
+        bookingDays[size] = (int) bookingDate.toEpochDay();
+        bookingMonths[size] = bookingDate.getYear() * 12 + bookingDate.getMonthValue() - 1;
+        amounts[size] = amount;
+        size++;
+    }
+
+    Ledger publish() {
+        return new Ledger(size, fromAccounts, toAccounts, bookingDays, bookingMonths, amounts,
+                accountIndexes.size(), accountIds);
+    }
+
+    private int indexOf(long accountId) {
+        Integer index = accountIndexes.get(accountId);
+        if (index != null)
+            return index;
+        int newIndex = accountIndexes.size();
+        if (newIndex == accountIds.length)
+            accountIds = Arrays.copyOf(accountIds, newIndex * 2);
+        accountIds[newIndex] = accountId;
+        accountIndexes.put(accountId, newIndex);
+        return newIndex;
+    }
+
+    private void grow() {
+        int capacity = amounts.length + (amounts.length >> 1);
+        fromAccounts = Arrays.copyOf(fromAccounts, capacity);
+        toAccounts = Arrays.copyOf(toAccounts, capacity);
+        bookingDays = Arrays.copyOf(bookingDays, capacity);
+        bookingMonths = Arrays.copyOf(bookingMonths, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+    }
+}
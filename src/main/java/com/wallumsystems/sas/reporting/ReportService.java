@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.AccountMovement;
+import com.wallumsystems.sas.component.ProfitAndLoss;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.util.MinorUnits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+@Service
+public class ReportService {
+
+    private static final int MIN_SLICE = 1 << 14;
+
+    private final LedgerEngine ledgerEngine;
+
+    private final ForkJoinPool forkJoinPool;
+
+    public ReportService(LedgerEngine ledgerEngine,
+                         @Value("${sas.reporting.parallelism:0}") int parallelism) {
+        this.ledgerEngine = ledgerEngine;
+        this.forkJoinPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    public List<AccountBalance> getTrialBalance(LocalDate asOf) throws LedgerNotLoadedException {
+        Ledger ledger = ledgerEngine.getLedger();
+        long[] totals = accountTotals(ledger, Integer.MIN_VALUE, (int) asOf.toEpochDay());
+        List<AccountBalance> trialBalance = new ArrayList<>();
+        for (int account = 0; account < ledger.accountCount; account++)
+            if (totals[2 * account] != 0 || totals[2 * account + 1] != 0)
+                trialBalance.add(toAccountBalance(ledger.accountIds[account], totals[2 * account], totals[2 * account + 1]));
+        return trialBalance;
+    }
+
+    public List<AccountMovement> getMovements(YearMonth from, YearMonth to) throws LedgerNotLoadedException {
+        Ledger ledger = ledgerEngine.getLedger();
+        int firstMonth = from.getYear() * 12 + from.getMonthValue() - 1;
+        int lastMonth = to.getYear() * 12 + to.getMonthValue() - 1;
+        WorkerTotals workerTotals = new WorkerTotals(2 * ledger.accountCount * (lastMonth - firstMonth + 1));
+        forkJoinPool.invoke(
+                new AccountPeriodTotalsTask(ledger, 0, ledger.size, firstMonth, lastMonth, threshold(ledger), workerTotals));
+        long[] totals = workerTotals.sum();
+        List<AccountMovement> movements = new ArrayList<>();
+        for (int month = firstMonth; month <= lastMonth; month++) {
+            YearMonth period = YearMonth.of(month / 12, month % 12 + 1);
+            int periodOffset = (month - firstMonth) * ledger.accountCount;
+            for (int account = 0; account < ledger.accountCount; account++) {
+                long incoming = totals[2 * (periodOffset + account)];
+                long outgoing = totals[2 * (periodOffset + account) + 1];
+                if (incoming != 0 || outgoing != 0)
+                    movements.add(new AccountMovement(Math.toIntExact(ledger.accountIds[account]), period,
+                            MinorUnits.toBigDecimal(incoming), MinorUnits.toBigDecimal(outgoing)));
+            }
+        }
+        return movements;
+    }
+
+    // revenue moves out of income accounts and costs move into expense accounts
+    public ProfitAndLoss getProfitAndLoss(LocalDate from, LocalDate to,
+                                          Collection<Long> incomeAccountIds,
+                                          Collection<Long> expenseAccountIds) throws LedgerNotLoadedException {
+        Ledger ledger = ledgerEngine.getLedger();
+        long[] totals = accountTotals(ledger, (int) from.toEpochDay(), (int) to.toEpochDay());
+        Map<Long, Integer> accountIndexes = new HashMap<>();
+        for (int account = 0; account < ledger.accountCount; account++)
+            accountIndexes.put(ledger.accountIds[account], account);
+
+        List<AccountBalance> income = new ArrayList<>();
+        long totalIncome = 0;
+        for (Long accountId : incomeAccountIds) {
+            Integer account = accountIndexes.get(accountId);
+            long incoming = account == null ? 0 : totals[2 * account];
+            long outgoing = account == null ? 0 : totals[2 * account + 1];
+            income.add(toAccountBalance(accountId, incoming, outgoing));
+            totalIncome += outgoing - incoming;
+        }
+        List<AccountBalance> expenses = new ArrayList<>();
+        long totalExpenses = 0;
+        for (Long accountId : expenseAccountIds) {
+            Integer account = accountIndexes.get(accountId);
+            long incoming = account == null ? 0 : totals[2 * account];
+            long outgoing = account == null ? 0 : totals[2 * account + 1];
+            expenses.add(toAccountBalance(accountId, incoming, outgoing));
+            totalExpenses += incoming - outgoing;
+        }
+        return new ProfitAndLoss(income, expenses, MinorUnits.toBigDecimal(totalIncome),
+                MinorUnits.toBigDecimal(totalExpenses), MinorUnits.toBigDecimal(totalIncome - totalExpenses));
+    }
+
+    private long[] accountTotals(Ledger ledger, int firstDay, int lastDay) {
+        WorkerTotals workerTotals = new WorkerTotals(2 * ledger.accountCount);
+        forkJoinPool.invoke(new AccountTotalsTask(ledger, 0, ledger.size, firstDay, lastDay, threshold(ledger), workerTotals));
+        return workerTotals.sum();
+    }
+
+    // a few slices per worker keep the pool busy, the slices of a worker share its totals array
+    private int threshold(Ledger ledger) {
+        return Math.max(MIN_SLICE, ledger.size / (forkJoinPool.getParallelism() * 4));
+    }
+
+    private static AccountBalance toAccountBalance(long accountId, long incoming, long outgoing) {
+        return new AccountBalance(Math.toIntExact(accountId), MinorUnits.toBigDecimal(incoming),
+                MinorUnits.toBigDecimal(outgoing), MinorUnits.toBigDecimal(incoming - outgoing));
+    }
+}
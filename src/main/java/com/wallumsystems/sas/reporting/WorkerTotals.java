@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.wallumsystems.sas.reporting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// one totals array per pool thread instead of one per slice, a thread only ever sums one slice at a time
+final class WorkerTotals {
+
+    private final int length;
+
+    private final Map<Thread, long[]> totals = new ConcurrentHashMap<>();
+
+    WorkerTotals(int length) {
+        this.length = length;
+    }
+
+    long[] ofCurrentThread() {
+        return totals.computeIfAbsent(Thread.currentThread(), thread -> new long[length]);
+    }
+
+    // after the tasks have completed
+    long[] sum() {
+        long[] sum = new long[length];
+        for (long[] threadTotals : totals.values())
+            for (int i = 0; i < length; i++)
+                sum[i] += threadTotals[i];
+        return sum;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import com.wallumsystems.sas.entity.BalanceSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshotEntity, Long> {
+
+    Optional<BalanceSnapshotEntity> findFirstByAccountIdAndPeriodEndLessThanEqualOrderByPeriodEndDesc(Long accountId, Date date);
+
+    @Query("select s.accountId from BalanceSnapshotEntity s where s.periodEnd = :periodEnd")
+    List<Long> findAccountIdsByPeriodEnd(@Param("periodEnd") Date periodEnd);
+
+    @Modifying
+    @Query("update BalanceSnapshotEntity s set s.incomingTotal = s.incomingTotal + :incoming, " +
+            "s.outgoingTotal = s.outgoingTotal + :outgoing " +
+            "where s.accountId = :accountId and s.periodEnd >= :bookingDate")
+    int addFromPeriodEnd(@Param("accountId") Long accountId,
+                         @Param("bookingDate") Date bookingDate,
+                         @Param("incoming") long incoming,
+                         @Param("outgoing") long outgoing);
+}
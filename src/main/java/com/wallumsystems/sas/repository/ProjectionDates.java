@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.wallumsystems.sas.repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+
+// Hibernate 5 resolves the constructor of a select new expression against java.util.Date for every date and
+// timestamp attribute, so the projections of this package take java.util.Date and narrow it here. The values are
+// the java.sql types of the entity mapping, anything else is converted rather than cast.
+final class ProjectionDates {
+
+    private ProjectionDates() {
+    }
+
+    static Date toSqlDate(java.util.Date date) {
+        if (date == null || date instanceof Date)
+            return (Date) date;
+        return new Date(date.getTime());
+    }
+
+    static Timestamp toSqlTimestamp(java.util.Date timestamp) {
+        if (timestamp == null || timestamp instanceof Timestamp)
+            return (Timestamp) timestamp;
+        return new Timestamp(timestamp.getTime());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import com.wallumsystems.sas.entity.ReconciliationMatchEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+@Repository
+public interface ReconciliationMatchRepository extends JpaRepository<ReconciliationMatchEntity, Long> {
+
+    // the records statement lines can be matched with; reverted records and their reverting records cancel out and
+    // never show up on a statement, recurring records are only templates
+    String RECONCILABLE_SELECT = "select new com.wallumsystems.sas.repository.ReconcilableRecord(" +
+            "r.id, r.description, r.fromAccountEntity.id, r.toAccountEntity.id, r.value, r.bookingDate) " +
+            "from RecordEntity r " +
+            "where type(r) in (RecordEntity, TaxRecordEntity) and r.revertingRecord is null ";
+
+    String UNRECONCILED_SELECT = RECONCILABLE_SELECT +
+            "and r.bookingDate >= :from and r.bookingDate <= :until " +
+            "and not exists (select m.id from ReconciliationMatchEntity m where m.recordEntity.id = r.id) ";
+
+    // one query per side, so each is served by its (account, booking date) index
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(UNRECONCILED_SELECT + "and r.toAccountEntity.id = :accountId")
+    Stream<ReconcilableRecord> streamUnreconciledIncoming(@Param("accountId") Long accountId,
+                                                          @Param("from") Date from,
+                                                          @Param("until") Date until);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(UNRECONCILED_SELECT + "and r.fromAccountEntity.id = :accountId")
+    Stream<ReconcilableRecord> streamUnreconciledOutgoing(@Param("accountId") Long accountId,
+                                                          @Param("from") Date from,
+                                                          @Param("until") Date until);
+
+    @Query("select m.recordEntity.id from ReconciliationMatchEntity m where m.recordEntity.id in :recordIds")
+    List<Long> findReconciledRecordIds(@Param("recordIds") Collection<Long> recordIds);
+
+    @Query(RECONCILABLE_SELECT + "and r.id in :ids")
+    List<ReconcilableRecord> findReconcilableByIds(@Param("ids") Collection<Long> ids);
+}
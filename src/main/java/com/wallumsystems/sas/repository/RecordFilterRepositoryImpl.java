@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class RecordFilterRepositoryImpl implements RecordFilterRepository {
+
+    private static final Comparator<RecordView> BOOKING_ORDER =
+            Comparator.comparing(RecordView::bookingDate).thenComparing(RecordView::id);
+
+    private final EntityManager entityManager;
+
+    public RecordFilterRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<RecordView> findViews(RecordFilter filter, LocalDate afterBookingDate, Long afterId, int limit) {
+        if (filter.accountId() == null)
+            return query(filter, null, afterBookingDate, afterId, limit);
+        // one seek per side instead of an or, so each side can use its (account, booking_date) index
+        List<RecordView> outgoing = query(filter, "fromAccountEntity", afterBookingDate, afterId, limit);
+        List<RecordView> incoming = query(filter, "toAccountEntity", afterBookingDate, afterId, limit);
+        return merge(outgoing, incoming, limit);
+    }
+
+    private List<RecordView> query(RecordFilter filter, String accountSide,
+                                   LocalDate afterBookingDate, Long afterId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        if (accountSide != null)
+            conditions.add("r." + accountSide + ".id = :accountId");
+        if (filter.from() != null)
+            conditions.add("r.bookingDate >= :from");
+        if (filter.until() != null)
+            conditions.add("r.bookingDate <= :until");
+        if (filter.type() != null)
+            conditions.add("type(r) = " + filter.type().getEntityClass().getSimpleName());
+        // the leading range on booking_date lets the database seek instead of filtering the whole table
+        if (afterBookingDate != null)
+            conditions.add("r.bookingDate >= :afterBookingDate and (r.bookingDate > :afterBookingDate or r.id > :afterId)");
+        StringBuilder jpql = new StringBuilder(RecordRepository.VIEW_SELECT);
+        if (!conditions.isEmpty())
+            jpql.append("where ").append(String.join(" and ", conditions)).append(' ');
+        jpql.append("order by r.bookingDate, r.id");
+
+        TypedQuery<RecordView> query = entityManager.createQuery(jpql.toString(), RecordView.class)
+                .setMaxResults(limit);
+        if (accountSide != null)
+            query.setParameter("accountId", filter.accountId());
+        if (filter.from() != null)
+            query.setParameter("from", Date.valueOf(filter.from()));
+        if (filter.until() != null)
+            query.setParameter("until", Date.valueOf(filter.until()));
+        if (afterBookingDate != null) {
+            query.setParameter("afterBookingDate", Date.valueOf(afterBookingDate));
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    // both sides are sorted, a record from the account to itself is on both of them
+    private static List<RecordView> merge(List<RecordView> outgoing, List<RecordView> incoming, int limit) {
+        List<RecordView> merged = new ArrayList<>(Math.min(limit, outgoing.size() + incoming.size()));
+        int o = 0;
+        int i = 0;
+        while (merged.size() < limit && (o < outgoing.size() || i < incoming.size())) {
+            if (i == incoming.size()) {
+                merged.add(outgoing.get(o++));
+            } else if (o == outgoing.size()) {
+                merged.add(incoming.get(i++));
+            } else {
+                int comparison = BOOKING_ORDER.compare(outgoing.get(o), incoming.get(i));
+                if (comparison == 0)
+                    i++;
+                merged.add(comparison <= 0 ? outgoing.get(o++) : incoming.get(i++));
+            }
+        }
+        return merged;
+    }
+}
@@ -22,8 +22,110 @@ package com.wallumsystems.sas.repository;
 
 import com.wallumsystems.sas.entity.RecordEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface RecordRepository extends JpaRepository<RecordEntity, Long> {
+public interface RecordRepository extends JpaRepository<RecordEntity, Long>, RecordFilterRepository {
+
+    // r.taxRecord.id and r.revertingRecord.id resolve to the foreign key columns without a join,
+    // the back-references are resolved through the owning side of the other record
+    String VIEW_SELECT = "select new com.wallumsystems.sas.repository.RecordView(" +
+            "r.id, r.description, r.fromAccountEntity.id, r.toAccountEntity.id, r.value, r.bookingDate, " +
+            "r.creationTime, r.taxRecord.id, r.revertingRecord.id, taxed.id, reverted.id) " +
+            "from RecordEntity r " +
+            "left join RecordEntity taxed on taxed.taxRecord.id = r.id " +
+            "left join RecordEntity reverted on reverted.revertingRecord.id = r.id ";
+
+    // recurring records are only templates, their materialized copies are what gets booked
+    String BOOKED_RECORDS = "from RecordEntity r where type(r) <> RecurringRecordEntity ";
+
+    @Query(VIEW_SELECT)
+    List<RecordView> findAllViews();
+
+    // must be consumed inside a transaction, Hibernate backs the stream with a forward-only scroll
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(VIEW_SELECT + "order by r.bookingDate, r.id")
+    Stream<RecordView> streamAllViews();
+
+    // same forward-only scroll as streamAllViews, the range is served by idx_record_booking_date;
+    // only bookings are exported, not the templates of recurring records
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(VIEW_SELECT + "where type(r) <> RecurringRecordEntity " +
+            "and r.bookingDate >= :from and r.bookingDate <= :until order by r.bookingDate, r.id")
+    Stream<RecordView> streamViewsBookedBetween(@Param("from") Date from, @Param("until") Date until);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select new com.wallumsystems.sas.repository.LedgerEntry(" +
+            "r.id, r.fromAccountEntity.id, r.toAccountEntity.id, r.value, r.bookingDate) " +
+            BOOKED_RECORDS + "order by r.id")
+    Stream<LedgerEntry> streamLedgerEntries();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select new com.wallumsystems.sas.repository.SearchEntry(" +
+            "r.id, r.description, r.fromAccountEntity.id, r.toAccountEntity.id, r.bookingDate) " +
+            BOOKED_RECORDS + "order by r.id")
+    Stream<SearchEntry> streamSearchEntries();
+
+    @Query(VIEW_SELECT + "where r.id in :ids")
+    List<RecordView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.wallumsystems.sas.repository.AccountTotal(r.toAccountEntity.id, sum(r.value)) " +
+            BOOKED_RECORDS + "group by r.toAccountEntity.id")
+    List<AccountTotal> sumIncomingByAccount();
+
+    @Query("select new com.wallumsystems.sas.repository.AccountTotal(r.fromAccountEntity.id, sum(r.value)) " +
+            BOOKED_RECORDS + "group by r.fromAccountEntity.id")
+    List<AccountTotal> sumOutgoingByAccount();
+
+    @Query("select new com.wallumsystems.sas.repository.AccountTotal(r.toAccountEntity.id, sum(r.value)) " +
+            BOOKED_RECORDS + "and r.bookingDate <= :until group by r.toAccountEntity.id")
+    List<AccountTotal> sumIncomingByAccountUntil(@Param("until") Date until);
+
+    @Query("select new com.wallumsystems.sas.repository.AccountTotal(r.fromAccountEntity.id, sum(r.value)) " +
+            BOOKED_RECORDS + "and r.bookingDate <= :until group by r.fromAccountEntity.id")
+    List<AccountTotal> sumOutgoingByAccountUntil(@Param("until") Date until);
+
+    @Query("select coalesce(sum(r.value), 0L) " + BOOKED_RECORDS + "and r.toAccountEntity.id = :accountId " +
+            "and r.bookingDate > :after and r.bookingDate <= :until")
+    Long sumIncomingBetween(@Param("accountId") Long accountId, @Param("after") Date after, @Param("until") Date until);
+
+    @Query("select coalesce(sum(r.value), 0L) " + BOOKED_RECORDS + "and r.fromAccountEntity.id = :accountId " +
+            "and r.bookingDate > :after and r.bookingDate <= :until")
+    Long sumOutgoingBetween(@Param("accountId") Long accountId, @Param("after") Date after, @Param("until") Date until);
+
+    // the tax and reverting records come with the same statement, the row locks keep concurrent reverts apart
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RecordEntity r left join fetch r.taxRecord left join fetch r.revertingRecord " +
+            "where r.id in :ids")
+    List<RecordEntity> findAllForRevert(@Param("ids") Collection<Long> ids);
+
+    // every filter parameter is optional, only records that can still be reverted are selected
+    @Query("select r.id from RecordEntity r " +
+            "where type(r) = RecordEntity and r.revertingRecord is null " +
+            "and (:accountId is null or r.fromAccountEntity.id = :accountId or r.toAccountEntity.id = :accountId) " +
+            "and (:bookedFrom is null or r.bookingDate >= :bookedFrom) " +
+            "and (:bookedUntil is null or r.bookingDate <= :bookedUntil) " +
+            "and (:createdFrom is null or r.creationTime >= :createdFrom) " +
+            "and (:createdUntil is null or r.creationTime < :createdUntil) " +
+            "order by r.id")
+    List<Long> findRevertibleIds(@Param("accountId") Long accountId,
+                                 @Param("bookedFrom") Date bookedFrom,
+                                 @Param("bookedUntil") Date bookedUntil,
+                                 @Param("createdFrom") Timestamp createdFrom,
+                                 @Param("createdUntil") Timestamp createdUntil);
 }
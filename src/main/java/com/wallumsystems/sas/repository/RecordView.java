@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+
+// flat read model of a record, holds only the ids of its associations so listings never touch the entity graph
+public record RecordView(Long id,
+                         String description,
+                         Long fromAccountId,
+                         Long toAccountId,
+                         Long value,
+                         Date bookingDate,
+                         Timestamp creationTime,
+                         Long taxRecordId,
+                         Long revertingRecordId,
+                         Long taxedRecordId,
+                         Long revertedRecordId) {
+
+    public RecordView(Long id, String description, Long fromAccountId, Long toAccountId, Long value,
+                      java.util.Date bookingDate, java.util.Date creationTime, Long taxRecordId,
+                      Long revertingRecordId, Long taxedRecordId, Long revertedRecordId) {
+        this(id, description, fromAccountId, toAccountId, value, ProjectionDates.toSqlDate(bookingDate),
+                ProjectionDates.toSqlTimestamp(creationTime), taxRecordId, revertingRecordId, taxedRecordId,
+                revertedRecordId);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.search;
+
+import com.wallumsystems.sas.component.RecordSearchPage;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.exception.SearchIndexNotLoadedException;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.repository.RecordView;
+import com.wallumsystems.sas.repository.SearchEntry;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// built once from the database in the background and then appended to on every commit, like the reporting ledger
+@Service
+public class RecordSearchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordSearchService.class);
+
+    private final RecordRepository recordRepository;
+
+    private final EntityToComponentConverter entityToComponentConverter;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+
+    private final int initialCapacity;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    private final int maxResultWindow;
+
+    private final Object lock = new Object();
+
+    private volatile SearchIndex index;
+
+    // guarded by lock, collects the commits that happen while the index is loaded, null afterwards
+    private List<RecordEntity> pendingRecords = new ArrayList<>();
+
+    public RecordSearchService(RecordRepository recordRepository,
+                               EntityToComponentConverter entityToComponentConverter,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${sas.search.enabled:true}") boolean enabled,
+                               @Value("${sas.search.initial-capacity:1048576}") int initialCapacity,
+                               @Value("${sas.search.page.default-size:20}") int defaultPageSize,
+                               @Value("${sas.search.page.max-size:100}") int maxPageSize,
+                               @Value("${sas.search.max-result-window:10000}") int maxResultWindow) {
+        this.recordRepository = recordRepository;
+        this.entityToComponentConverter = entityToComponentConverter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.initialCapacity = initialCapacity;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxResultWindow = maxResultWindow;
+        if (!enabled)
+            pendingRecords = null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled)
+            return;
+        Thread loader = new Thread(this::load, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener
+    public void onRecordsPosted(RecordsPostedEvent event) {
+        synchronized (lock) {
+            if (index != null) {
+                for (RecordEntity recordEntity : event.records())
+                    add(index, recordEntity);
+            } else if (pendingRecords != null) {
+                pendingRecords.addAll(event.records());
+            }
+        }
+    }
+
+    // throws an IllegalArgumentException for a query without words or a page beyond the result window
+    public RecordSearchPage search(String query, Long accountId, LocalDate from, LocalDate until,
+                                   Integer page, Integer size) throws SearchIndexNotLoadedException {
+        SearchIndex current = index;
+        if (current == null)
+            throw new SearchIndexNotLoadedException();
+        List<String> tokens = SearchIndex.tokenize(query);
+        if (tokens.isEmpty())
+            throw new IllegalArgumentException("The query contains no words");
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        if (pageNumber < 0 || (long) (pageNumber + 1) * pageSize > maxResultWindow)
+            throw new IllegalArgumentException("Page outside of the result window");
+        SearchHits hits = current.search(tokens, accountId, from, until, pageNumber * pageSize, pageSize);
+        // a single primary key lookup for the page, the index only knows the ids
+        Map<Long, RecordView> recordViews = hits.ids().isEmpty() ? Map.of()
+                : recordRepository.findViewsByIds(hits.ids()).stream()
+                .collect(Collectors.toMap(RecordView::id, Function.identity()));
+        return new RecordSearchPage(
+                hits.ids().stream()
+                        .map(recordViews::get)
+                        .filter(Objects::nonNull)
+                        .map(entityToComponentConverter::recordViewToRecord)
+                        .toList(),
+                hits.total(), pageNumber, pageSize);
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        SearchIndex loadingIndex = new SearchIndex(initialCapacity);
+        int loaded;
+        try {
+            loaded = readOnlyTransaction.execute(status -> loadInto(loadingIndex));
+        } catch (RuntimeException e) {
+            LOGGER.error("Loading the search index failed, search stays unavailable", e);
+            synchronized (lock) {
+                pendingRecords = null;
+            }
+            return;
+        }
+        synchronized (lock) {
+            // a record committed right before the load started can be both loaded and pending
+            for (RecordEntity pendingRecord : pendingRecords)
+                if (!loadingIndex.containsLoaded(pendingRecord.getId(), loaded))
+                    add(loadingIndex, pendingRecord);
+            pendingRecords = null;
+            index = loadingIndex;
+        }
+        LOGGER.info("Indexed {} record descriptions in {} ms", loadingIndex.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private int loadInto(SearchIndex loadingIndex) {
+        int loaded = 0;
+        try (Stream<SearchEntry> searchEntries = recordRepository.streamSearchEntries()) {
+            Iterator<SearchEntry> iterator = searchEntries.iterator();
+            while (iterator.hasNext()) {
+                SearchEntry searchEntry = iterator.next();
+                loadingIndex.add(searchEntry.id(), searchEntry.description(), searchEntry.fromAccountId(),
+                        searchEntry.toAccountId(), searchEntry.bookingDate().toLocalDate());
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private static void add(SearchIndex searchIndex, RecordEntity recordEntity) {
+        searchIndex.add(recordEntity.getId(), recordEntity.getDescription(), recordEntity.getFromAccountEntity().getId(),
+                recordEntity.getToAccountEntity().getId(), recordEntity.getBookingDate().toLocalDate());
+    }
+}
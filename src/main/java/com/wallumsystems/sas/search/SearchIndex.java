@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.search;
+
+import com.wallumsystems.sas.util.TextTokens;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over the descriptions plus the columns the search filters on. Records are numbered in the
+// order they are added, so every posting list is sorted without ever being sorted.
+final class SearchIndex {
+
+    // a query token that is a whole term weighs more than one that is only a prefix of it
+    private static final double PREFIX_WEIGHT = 0.5;
+
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Comparator.comparingInt(Hit::bookingDay).reversed())
+            .thenComparing(Comparator.comparingInt(Hit::document).reversed());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // guarded by lock, the columns are indexed by document number
+    private int size;
+
+    private long[] ids;
+
+    private long[] fromAccounts;
+
+    private long[] toAccounts;
+
+    private int[] bookingDays;
+
+    // the terms of each description, shared with the keys of the term map
+    private String[][] documentTerms;
+
+    private record Hit(int document, double score, int bookingDay) {
+    }
+
+    SearchIndex(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        fromAccounts = new long[capacity];
+        toAccounts = new long[capacity];
+        bookingDays = new int[capacity];
+        documentTerms = new String[capacity][];
+    }
+
+    static List<String> tokenize(String text) {
+        return TextTokens.tokenize(text);
+    }
+
+    void add(long id, String description, long fromAccountId, long toAccountId, LocalDate bookingDate) {
+        lock.writeLock().lock();
+        try {
+            if (size == ids.length)
+                grow();
+            int document = size;
+            ids[document] = id;
+            fromAccounts[document] = fromAccountId;
+            toAccounts[document] = toAccountId;
+            bookingDays[document] = (int) bookingDate.toEpochDay();
+            List<String> tokens = tokenize(description);
+            String[] canonicalTerms = new String[tokens.size()];
+            for (int i = 0; i < canonicalTerms.length; i++) {
+                Postings postings = terms.computeIfAbsent(tokens.get(i), Postings::new);
+                postings.add(document);
+                canonicalTerms[i] = postings.term;
+            }
+            documentTerms[document] = canonicalTerms;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // only valid while the ids are added in ascending order, which holds for the initial load
+    boolean containsLoaded(long id, int loadedSize) {
+        lock.readLock().lock();
+        try {
+            return Arrays.binarySearch(ids, 0, loadedSize, id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every token has to be the prefix of a term of the description, the filters are optional. Only the
+    // token with the fewest postings is looked up in the index, the others are checked against the terms of
+    // its documents, so a short prefix with thousands of terms costs nothing as long as another token is rarer.
+    SearchHits search(List<String> tokens, Long accountId, LocalDate from, LocalDate until, int offset, int limit) {
+        if (tokens.isEmpty())
+            return new SearchHits(List.of(), 0);
+        lock.readLock().lock();
+        try {
+            List<Collection<Postings>> expansions = new ArrayList<>(tokens.size());
+            double[] weights = new double[tokens.size()];
+            int driver = 0;
+            long driverCount = Long.MAX_VALUE;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                Collection<Postings> expansion = terms.subMap(token, true, token + Character.MAX_VALUE, true).values();
+                long count = 0;
+                for (Postings postings : expansion)
+                    count += postings.count;
+                if (count == 0)
+                    return new SearchHits(List.of(), 0);
+                // rare tokens count for more, like the idf of a full text engine
+                weights[i] = Math.log(1 + (double) size / count);
+                expansions.add(expansion);
+                if (count < driverCount) {
+                    driver = i;
+                    driverCount = count;
+                }
+            }
+            BitSet candidates = new BitSet(size);
+            for (Postings postings : expansions.get(driver))
+                postings.addTo(candidates);
+
+            boolean filterAccount = accountId != null;
+            long account = filterAccount ? accountId : 0;
+            int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+            int untilDay = until != null ? (int) until.toEpochDay() : Integer.MAX_VALUE;
+            int wanted = offset + limit;
+            // the worst of the best hits so far is on top and is the one replaced
+            PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(1, wanted), BEST_FIRST.reversed());
+            long total = 0;
+            for (int document = candidates.nextSetBit(0); document >= 0; document = candidates.nextSetBit(document + 1)) {
+                if (filterAccount && fromAccounts[document] != account && toAccounts[document] != account)
+                    continue;
+                if (bookingDays[document] < fromDay || bookingDays[document] > untilDay)
+                    continue;
+                double score = score(documentTerms[document], tokens, weights);
+                if (score < 0)
+                    continue;
+                total++;
+                if (best.size() == wanted) {
+                    // most matches of a broad query lose against the worst kept hit, they are never allocated
+                    if (wanted == 0 || !isBetter(score, bookingDays[document], document, best.peek()))
+                        continue;
+                    best.poll();
+                }
+                best.add(new Hit(document, score, bookingDays[document]));
+            }
+            List<Hit> ranked = new ArrayList<>(best);
+            ranked.sort(BEST_FIRST);
+            List<Long> pageIds = new ArrayList<>(limit);
+            for (int i = offset; i < ranked.size(); i++)
+                pageIds.add(ids[ranked.get(i).document()]);
+            return new SearchHits(pageIds, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // same order as BEST_FIRST
+    private static boolean isBetter(double score, int bookingDay, int document, Hit hit) {
+        if (score != hit.score())
+            return score > hit.score();
+        if (bookingDay != hit.bookingDay())
+            return bookingDay > hit.bookingDay();
+        return document > hit.document();
+    }
+
+    // negative if a token matches none of the terms
+    private static double score(String[] documentTerms, List<String> tokens, double[] weights) {
+        double score = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            double weight = -1;
+            for (String documentTerm : documentTerms) {
+                if (documentTerm.equals(token)) {
+                    weight = weights[i];
+                    break;
+                }
+                if (documentTerm.startsWith(token))
+                    weight = weights[i] * PREFIX_WEIGHT;
+            }
+            if (weight < 0)
+                return -1;
+            score += weight;
+        }
+        return score;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        fromAccounts = Arrays.copyOf(fromAccounts, capacity);
+        toAccounts = Arrays.copyOf(toAccounts, capacity);
+        bookingDays = Arrays.copyOf(bookingDays, capacity);
+        documentTerms = Arrays.copyOf(documentTerms, capacity);
+    }
+
+    private static final class Postings {
+
+        private final String term;
+
+        private int[] documents = new int[4];
+
+        private int count;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void add(int document) {
+            if (count == documents.length)
+                documents = Arrays.copyOf(documents, count * 2);
+            documents[count++] = document;
+        }
+
+        private void addTo(BitSet bitSet) {
+            for (int i = 0; i < count; i++)
+                bitSet.set(documents[i]);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.BalanceDrift;
+import com.wallumsystems.sas.entity.AccountBalanceEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.repository.AccountBalanceRepository;
+import com.wallumsystems.sas.repository.AccountTotal;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.util.MinorUnits;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@Service
+public class AccountBalanceService {
+
+    private final AccountBalanceRepository accountBalanceRepository;
+
+    private final RecordRepository recordRepository;
+
+    private final LedgerVersion ledgerVersion;
+
+    public AccountBalanceService(AccountBalanceRepository accountBalanceRepository, RecordRepository recordRepository, LedgerVersion ledgerVersion) {
+        this.accountBalanceRepository = accountBalanceRepository;
+        this.recordRepository = recordRepository;
+        this.ledgerVersion = ledgerVersion;
+    }
+
+    // has to run in the transaction that inserts the records
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Collection<? extends RecordEntity> recordEntities) {
+        // sorted by account id so concurrent postings always lock the balance rows in the same order
+        Map<Long, long[]> movements = new TreeMap<>();
+        for (RecordEntity recordEntity : recordEntities) {
+            movements.computeIfAbsent(recordEntity.getToAccountEntity().getId(), id -> new long[2])[0]
+                    += recordEntity.getValue();
+            movements.computeIfAbsent(recordEntity.getFromAccountEntity().getId(), id -> new long[2])[1]
+                    += recordEntity.getValue();
+        }
+        movements.forEach((accountId, movement) ->
+                accountBalanceRepository.addToBalance(accountId, movement[0], movement[1]));
+    }
+
+    @Transactional(readOnly = true)
+    public AccountBalance getBalance(Long accountId) {
+        return accountBalanceRepository.findById(accountId)
+                .map(AccountBalanceService::toAccountBalance)
+                .orElseGet(() -> toAccountBalance(new AccountBalanceEntity(accountId, 0L, 0L)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AccountBalance> getBalances() {
+        return accountBalanceRepository.findAll().stream()
+                .map(AccountBalanceService::toAccountBalance)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<BalanceDrift> verify() {
+        return computeDrifts(expectedBalances());
+    }
+
+    // postings committed while the totals are recomputed are not reflected, run it while the ledger is quiet
+    @Transactional
+    public List<BalanceDrift> rebuild() {
+        Map<Long, AccountBalanceEntity> expectedBalances = expectedBalances();
+        List<BalanceDrift> drifts = computeDrifts(expectedBalances);
+        for (BalanceDrift drift : drifts) {
+            Long accountId = drift.accountId().longValue();
+            accountBalanceRepository.save(Optional.ofNullable(expectedBalances.get(accountId))
+                    .orElseGet(() -> new AccountBalanceEntity(accountId, 0L, 0L)));
+        }
+        if (!drifts.isEmpty())
+            ledgerVersion.increment();
+        return drifts;
+    }
+
+    private Map<Long, AccountBalanceEntity> expectedBalances() {
+        Map<Long, AccountBalanceEntity> expectedBalances = new HashMap<>();
+        for (AccountTotal incoming : recordRepository.sumIncomingByAccount())
+            expectedBalances.computeIfAbsent(incoming.accountId(), id -> new AccountBalanceEntity(id, 0L, 0L))
+                    .setIncomingTotal(incoming.total());
+        for (AccountTotal outgoing : recordRepository.sumOutgoingByAccount())
+            expectedBalances.computeIfAbsent(outgoing.accountId(), id -> new AccountBalanceEntity(id, 0L, 0L))
+                    .setOutgoingTotal(outgoing.total());
+        return expectedBalances;
+    }
+
+    private List<BalanceDrift> computeDrifts(Map<Long, AccountBalanceEntity> expectedBalances) {
+        Map<Long, AccountBalanceEntity> actualBalances = new HashMap<>();
+        for (AccountBalanceEntity actualBalance : accountBalanceRepository.findAll())
+            actualBalances.put(actualBalance.getAccountId(), actualBalance);
+        Collection<Long> accountIds = new TreeSet<>(expectedBalances.keySet());
+        accountIds.addAll(actualBalances.keySet());
+
+        List<BalanceDrift> drifts = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            AccountBalanceEntity expected = expectedBalances.getOrDefault(accountId, new AccountBalanceEntity(accountId, 0L, 0L));
+            AccountBalanceEntity actual = actualBalances.getOrDefault(accountId, new AccountBalanceEntity(accountId, 0L, 0L));
+            if (!expected.getIncomingTotal().equals(actual.getIncomingTotal())
+                    || !expected.getOutgoingTotal().equals(actual.getOutgoingTotal()))
+                drifts.add(new BalanceDrift(Math.toIntExact(accountId),
+                        MinorUnits.toBigDecimal(expected.getIncomingTotal()),
+                        MinorUnits.toBigDecimal(actual.getIncomingTotal()),
+                        MinorUnits.toBigDecimal(expected.getOutgoingTotal()),
+                        MinorUnits.toBigDecimal(actual.getOutgoingTotal())));
+        }
+        return drifts;
+    }
+
+    private static AccountBalance toAccountBalance(AccountBalanceEntity accountBalanceEntity) {
+        return new AccountBalance(Math.toIntExact(accountBalanceEntity.getAccountId()),
+                MinorUnits.toBigDecimal(accountBalanceEntity.getIncomingTotal()),
+                MinorUnits.toBigDecimal(accountBalanceEntity.getOutgoingTotal()),
+                MinorUnits.toBigDecimal(accountBalanceEntity.getIncomingTotal() - accountBalanceEntity.getOutgoingTotal()));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.BaseEntity;
+import com.wallumsystems.sas.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Remembers which accounts exist. Only immutable snapshots are cached, callers get a reference of their own
+// persistence context, so no entity and none of its lazy collections is shared between threads.
+@Service
+public class AccountCache {
+
+    private final EntityManager entityManager;
+
+    private final AccountRepository accountRepository;
+
+    private final Cache<Long, CachedAccount> accounts;
+
+    private record CachedAccount(Long id, String name) {
+
+        private static CachedAccount of(AccountEntity accountEntity) {
+            return new CachedAccount(accountEntity.getId(), accountEntity.getName());
+        }
+    }
+
+    public AccountCache(EntityManager entityManager,
+                        AccountRepository accountRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${sas.account-cache.maximum-size:10000}") long maximumSize) {
+        this.entityManager = entityManager;
+        this.accountRepository = accountRepository;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "accounts");
+    }
+
+    // Unknown ids are not cached, so an account created later is found on the next lookup. The result is an
+    // uninitialized reference, it is meant for associations and only its id can be read without a session.
+    public Optional<AccountEntity> findById(Long id) {
+        return Optional.ofNullable(accounts.get(id, key -> accountRepository.findById(key).map(CachedAccount::of).orElse(null)))
+                .map(this::referenceOf);
+    }
+
+    // loads all ids that are not cached yet with a single query, unknown ids are missing from the result
+    public Map<Long, AccountEntity> findAllById(Collection<Long> ids) {
+        return accounts.getAll(ids, missingIds -> {
+            List<Long> idsToLoad = new ArrayList<>();
+            missingIds.forEach(idsToLoad::add);
+            return accountRepository.findAllById(idsToLoad).stream()
+                    .collect(Collectors.toMap(BaseEntity::getId, CachedAccount::of));
+        }).values().stream().collect(Collectors.toMap(CachedAccount::id, this::referenceOf));
+    }
+
+    private AccountEntity referenceOf(CachedAccount cachedAccount) {
+        return entityManager.getReference(AccountEntity.class, cachedAccount.id());
+    }
+
+    public void invalidate(Long id) {
+        accounts.invalidate(id);
+        // a concurrent lookup may reload the old row before the change is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accounts.invalidate(id);
+                }
+            });
+    }
+
+    public void invalidateAll() {
+        accounts.invalidateAll();
+    }
+}
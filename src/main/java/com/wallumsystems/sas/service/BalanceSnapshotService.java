@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.entity.BalanceSnapshotEntity;
+import com.wallumsystems.sas.entity.BalanceSnapshotEntity.PeriodType;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.repository.AccountTotal;
+import com.wallumsystems.sas.repository.BalanceSnapshotRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.util.MinorUnits;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+public class BalanceSnapshotService {
+
+    // MariaDB does not guarantee dates before this one
+    private static final Date BEGINNING_OF_TIME = Date.valueOf(LocalDate.of(1000, 1, 1));
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+
+    private final RecordRepository recordRepository;
+
+    public BalanceSnapshotService(BalanceSnapshotRepository balanceSnapshotRepository, RecordRepository recordRepository) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.recordRepository = recordRepository;
+    }
+
+    public static boolean isPeriodEnd(LocalDate date) {
+        return date.getDayOfMonth() == date.lengthOfMonth();
+    }
+
+    // serializable reads lock the booked range, a back-dated posting waits for the close and then adjusts it
+    @Transactional(isolation = Isolation.SERIALIZABLE)
+    public int closePeriod(LocalDate periodEnd) {
+        if (!isPeriodEnd(periodEnd))
+            throw new IllegalArgumentException("A period has to end on the last day of a month");
+        Date until = Date.valueOf(periodEnd);
+        PeriodType periodType = periodEnd.getMonthValue() == 12 ? PeriodType.YEAR : PeriodType.MONTH;
+
+        Map<Long, long[]> totals = new TreeMap<>();
+        for (AccountTotal incoming : recordRepository.sumIncomingByAccountUntil(until))
+            totals.computeIfAbsent(incoming.accountId(), id -> new long[2])[0] = incoming.total();
+        for (AccountTotal outgoing : recordRepository.sumOutgoingByAccountUntil(until))
+            totals.computeIfAbsent(outgoing.accountId(), id -> new long[2])[1] = outgoing.total();
+        // snapshots are immutable, an already closed account stays as it is
+        Set<Long> closedAccounts = new HashSet<>(balanceSnapshotRepository.findAccountIdsByPeriodEnd(until));
+        int written = 0;
+        for (Map.Entry<Long, long[]> total : totals.entrySet()) {
+            if (closedAccounts.contains(total.getKey()))
+                continue;
+            balanceSnapshotRepository.save(BalanceSnapshotEntity.builder()
+                    .accountId(total.getKey())
+                    .periodEnd(until)
+                    .periodType(periodType)
+                    .incomingTotal(total.getValue()[0])
+                    .outgoingTotal(total.getValue()[1])
+                    .build());
+            written++;
+        }
+        return written;
+    }
+
+    // Has to run after the records have been flushed in the posting transaction. The snapshots hold the totals up
+    // to their period end, so a posting moves every snapshot of its accounts from its booking date on and they
+    // stay usable. Postings into open periods match no snapshot.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjust(Collection<? extends RecordEntity> recordEntities) {
+        // sorted, so concurrent postings lock the snapshot rows in the same order
+        Map<Long, Map<LocalDate, long[]>> movements = new TreeMap<>();
+        for (RecordEntity recordEntity : recordEntities) {
+            LocalDate bookingDate = recordEntity.getBookingDate().toLocalDate();
+            movements.computeIfAbsent(recordEntity.getToAccountEntity().getId(), id -> new TreeMap<>())
+                    .computeIfAbsent(bookingDate, date -> new long[2])[0] += recordEntity.getValue();
+            movements.computeIfAbsent(recordEntity.getFromAccountEntity().getId(), id -> new TreeMap<>())
+                    .computeIfAbsent(bookingDate, date -> new long[2])[1] += recordEntity.getValue();
+        }
+        movements.forEach((accountId, accountMovements) -> accountMovements.forEach((bookingDate, movement) ->
+                balanceSnapshotRepository.addFromPeriodEnd(accountId, Date.valueOf(bookingDate), movement[0], movement[1])));
+    }
+
+    @Transactional(readOnly = true)
+    public AccountBalance getBalanceAsOf(Long accountId, LocalDate asOf) {
+        Date until = Date.valueOf(asOf);
+        Optional<BalanceSnapshotEntity> snapshot = balanceSnapshotRepository
+                .findFirstByAccountIdAndPeriodEndLessThanEqualOrderByPeriodEndDesc(accountId, until);
+        // only the records booked after the snapshot have to be summed up
+        Date after = snapshot.map(BalanceSnapshotEntity::getPeriodEnd).orElse(BEGINNING_OF_TIME);
+        long incoming = snapshot.map(BalanceSnapshotEntity::getIncomingTotal).orElse(0L)
+                + recordRepository.sumIncomingBetween(accountId, after, until);
+        long outgoing = snapshot.map(BalanceSnapshotEntity::getOutgoingTotal).orElse(0L)
+                + recordRepository.sumOutgoingBetween(accountId, after, until);
+        return new AccountBalance(Math.toIntExact(accountId), MinorUnits.toBigDecimal(incoming),
+                MinorUnits.toBigDecimal(outgoing), MinorUnits.toBigDecimal(incoming - outgoing));
+    }
+}
@@ -25,14 +25,14 @@ import com.wallumsystems.sas.entity.RecordEntity;
 import com.wallumsystems.sas.entity.RevertingRecordEntity;
 import com.wallumsystems.sas.entity.TaxRecordEntity;
 import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
-import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.RecordView;
 import com.wallumsystems.sas.swagger.model.Account;
 import com.wallumsystems.sas.swagger.model.NewRecord;
 import com.wallumsystems.sas.swagger.model.NoDateBaseRecord;
 import com.wallumsystems.sas.swagger.model.Record;
+import com.wallumsystems.sas.util.MinorUnits;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
@@ -41,10 +41,10 @@ import java.util.Optional;
 @Service
 public class EntityToComponentConverter {
 
-    private final AccountRepository accountRepository;
+    private final AccountCache accountCache;
 
-    public EntityToComponentConverter(AccountRepository accountRepository) {
-        this.accountRepository = accountRepository;
+    public EntityToComponentConverter(AccountCache accountCache) {
+        this.accountCache = accountCache;
     }
 
     public Record recordEntityToRecord(RecordEntity recordEntity) {
@@ -54,44 +54,68 @@ public class EntityToComponentConverter {
                 .description(recordEntity.getDescription())
                 .fromAccountId(Math.toIntExact(recordEntity.getFromAccountEntity().getId()))
                 .toAccountId(Math.toIntExact(recordEntity.getToAccountEntity().getId()))
-                .amount(BigDecimal.valueOf(recordEntity.getValue()))
+                .amount(MinorUnits.toBigDecimal(recordEntity.getValue()))
                 .bookingDate(recordEntity.getBookingDate().toLocalDate())
                 .creationTime(recordEntity.getCreationTime().toInstant().atOffset(ZoneOffset.UTC));
         if (recordEntity.getTaxRecord() != null)
             resultingRecord.taxRecord(recordEntity.getTaxRecord().getId().intValue());
         if (recordEntity.getRevertingRecord() != null)
             resultingRecord.revertingRecord(recordEntity.getRevertingRecord().getId().intValue());
-        if (recordEntity instanceof TaxRecordEntity taxRecord)
+        // the back-references are only known to records that were loaded or built together with their record
+        if (recordEntity instanceof TaxRecordEntity taxRecord && taxRecord.getRecordEntity() != null)
             resultingRecord.taxedRecord(taxRecord.getRecordEntity().getId().intValue());
-        if (recordEntity instanceof RevertingRecordEntity revertingRecord)
+        if (recordEntity instanceof RevertingRecordEntity revertingRecord && revertingRecord.getRecordEntity() != null)
             resultingRecord.revertedRecord(revertingRecord.getRecordEntity().getId().intValue());
         return resultingRecord;
     }
 
+    public Record recordViewToRecord(RecordView recordView) {
+        Record resultingRecord = new Record()
+                .id(Math.toIntExact(recordView.id()))
+                .description(recordView.description())
+                .fromAccountId(Math.toIntExact(recordView.fromAccountId()))
+                .toAccountId(Math.toIntExact(recordView.toAccountId()))
+                .amount(MinorUnits.toBigDecimal(recordView.value()))
+                .bookingDate(recordView.bookingDate().toLocalDate())
+                .creationTime(recordView.creationTime().toInstant().atOffset(ZoneOffset.UTC));
+        if (recordView.taxRecordId() != null)
+            resultingRecord.taxRecord(Math.toIntExact(recordView.taxRecordId()));
+        if (recordView.revertingRecordId() != null)
+            resultingRecord.revertingRecord(Math.toIntExact(recordView.revertingRecordId()));
+        if (recordView.taxedRecordId() != null)
+            resultingRecord.taxedRecord(Math.toIntExact(recordView.taxedRecordId()));
+        if (recordView.revertedRecordId() != null)
+            resultingRecord.revertedRecord(Math.toIntExact(recordView.revertedRecordId()));
+        return resultingRecord;
+    }
+
     public RecordEntity newRecordToRecordEntity(NewRecord newRecord) throws AccountEntityNotFoundException {
-        Optional<AccountEntity> optionalFromAccount = accountRepository.findById(Long.valueOf(newRecord.getFromAccountId()));
-        Optional<AccountEntity> optionalToAccount = accountRepository.findById(Long.valueOf(newRecord.getToAccountId()));
+        Optional<AccountEntity> optionalFromAccount = accountCache.findById(Long.valueOf(newRecord.getFromAccountId()));
+        Optional<AccountEntity> optionalToAccount = accountCache.findById(Long.valueOf(newRecord.getToAccountId()));
         RecordEntity resultingRecord = RecordEntity.builder()
                 .description(newRecord.getDescription())
                 .fromAccountEntity(optionalFromAccount.orElseThrow(AccountEntityNotFoundException::new))
                 .toAccountEntity(optionalToAccount.orElseThrow(AccountEntityNotFoundException::new))
-                .value(newRecord.getAmount().doubleValue())
+                .value(MinorUnits.fromBigDecimal(newRecord.getAmount()))
                 .bookingDate(Date.valueOf(newRecord.getBookingDate()))
                 .build();
-        if (newRecord.getTaxRecord() != null)
-            resultingRecord.setTaxRecord(noDateBaseRecordToTaxRecordEntity(newRecord.getTaxRecord(), newRecord.getBookingDate()));
+        if (newRecord.getTaxRecord() != null) {
+            TaxRecordEntity taxRecord = noDateBaseRecordToTaxRecordEntity(newRecord.getTaxRecord(), newRecord.getBookingDate());
+            taxRecord.setRecordEntity(resultingRecord);
+            resultingRecord.setTaxRecord(taxRecord);
+        }
         return resultingRecord;
     }
 
     public TaxRecordEntity noDateBaseRecordToTaxRecordEntity(NoDateBaseRecord recordToConvert, LocalDate bookingDate) throws AccountEntityNotFoundException {
-        Optional<AccountEntity> optionalFromAccount = accountRepository.findById(Long.valueOf(recordToConvert.getFromAccountId()));
-        Optional<AccountEntity> optionalToAccount = accountRepository.findById(Long.valueOf(recordToConvert.getToAccountId()));
+        Optional<AccountEntity> optionalFromAccount = accountCache.findById(Long.valueOf(recordToConvert.getFromAccountId()));
+        Optional<AccountEntity> optionalToAccount = accountCache.findById(Long.valueOf(recordToConvert.getToAccountId()));
         return TaxRecordEntity.builder()
                 .description(recordToConvert.getDescription())
                 .bookingDate(Date.valueOf(bookingDate))
                 .fromAccountEntity(optionalFromAccount.orElseThrow(AccountEntityNotFoundException::new))
                 .toAccountEntity(optionalToAccount.orElseThrow(AccountEntityNotFoundException::new))
-                .value(recordToConvert.getAmount().doubleValue())
+                .value(MinorUnits.fromBigDecimal(recordToConvert.getAmount()))
                 .build();
     }
 
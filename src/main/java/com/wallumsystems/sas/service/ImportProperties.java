@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// layout of the bank exports and the rules that assign the counter account of a line
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sas.import")
+public class ImportProperties {
+
+    private char delimiter = ';';
+
+    private String charset = "UTF-8";
+
+    private boolean skipHeader = true;
+
+    private String datePattern = "dd.MM.yyyy";
+
+    private char decimalSeparator = ',';
+
+    private Columns columns = new Columns();
+
+    // the account of the statement, can be overridden per import
+    private Long bankAccountId;
+
+    // counter account of lines that match no rule, those lines are rejected without one
+    private Long defaultAccountId;
+
+    // checked in order, the first rule whose pattern is found in the counterparty or the description wins
+    private List<Rule> rules = new ArrayList<>();
+
+    private int batchSize = 1000;
+
+    private int queueCapacity = 16;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // every running import holds parallelism + 2 threads, further uploads are turned away
+    private int maxConcurrentImports = 2;
+
+    private int maxReportedRejects = 1000;
+
+    @Getter
+    @Setter
+    public static class Columns {
+        private int bookingDate = 0;
+        private int amount = 1;
+        private int description = 2;
+        private int counterparty = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String pattern;
+        private Long accountId;
+    }
+}
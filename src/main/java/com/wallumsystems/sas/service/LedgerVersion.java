@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.entity.LedgerVersionEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.repository.LedgerVersionRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Objects;
+
+// Increases with every commit that changes what the listings return. The version is a row that the changing
+// transaction updates, so all instances behind a load balancer see a new version together with the change,
+// and it survives restarts.
+@Service
+public class LedgerVersion {
+
+    private final LedgerVersionRepository ledgerVersionRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object lock = new Object();
+
+    // guarded by lock, the latest version this instance has read
+    private long observedVersion = -1;
+
+    private volatile long lastChangeMillis = System.currentTimeMillis();
+
+    // bound to the transaction, so a transaction with several changes increases the version once
+    private static final class TransactionChange {
+
+        private boolean counted;
+    }
+
+    public LedgerVersion(LedgerVersionRepository ledgerVersionRepository,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager) {
+        this.ledgerVersionRepository = ledgerVersionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // one primary key lookup, still far cheaper than the listings it saves
+    public long current() {
+        long version = Objects.requireNonNullElse(ledgerVersionRepository.findVersion(), 0L);
+        synchronized (lock) {
+            if (version != observedVersion) {
+                observedVersion = version;
+                lastChangeMillis = System.currentTimeMillis();
+            }
+        }
+        return version;
+    }
+
+    // the variant tells the encodings of the same listing apart
+    public String eTag(long version, String variant) {
+        return "\"" + version + "-" + variant + "\"";
+    }
+
+    // when this instance first saw the current version, no earlier than its commit
+    public long lastChangeMillis() {
+        return lastChangeMillis;
+    }
+
+    // in the posting transaction, so the version can not miss a committed posting
+    @EventListener
+    public void onRecordsPosted(RecordsPostedEvent event) {
+        increment();
+    }
+
+    // the row is updated right before the commit, so its lock is only held for the commit itself
+    public void increment() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionTemplate.executeWithoutResult(status -> incrementRow());
+            return;
+        }
+        transactionChange();
+    }
+
+    // For changes that only show up while Hibernate flushes, such as in entity listeners. That flush may be the one
+    // of the commit, which runs after the beforeCommit callbacks, so the row is updated right away. The update goes
+    // over JDBC on the connection of the transaction, a query through the entity manager could flush again.
+    public void incrementWhileFlushing() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            increment();
+            return;
+        }
+        TransactionChange transactionChange = transactionChange();
+        if (transactionChange.counted)
+            return;
+        if (jdbcTemplate.update("update ledger_version set version = version + 1 where id = ?", LedgerVersionEntity.ID) == 0)
+            jdbcTemplate.update("insert into ledger_version (id, version) values (?, 1)", LedgerVersionEntity.ID);
+        transactionChange.counted = true;
+    }
+
+    private TransactionChange transactionChange() {
+        TransactionChange bound = (TransactionChange) TransactionSynchronizationManager.getResource(this);
+        if (bound != null)
+            return bound;
+        TransactionChange transactionChange = new TransactionChange();
+        TransactionSynchronizationManager.bindResource(this, transactionChange);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!transactionChange.counted)
+                    incrementRow();
+                transactionChange.counted = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LedgerVersion.this);
+            }
+        });
+        return transactionChange;
+    }
+
+    // the row is created by the migration, schemas generated by Hibernate start without it
+    private void incrementRow() {
+        if (ledgerVersionRepository.increment() == 0)
+            ledgerVersionRepository.save(new LedgerVersionEntity(LedgerVersionEntity.ID, 1L));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+public class PeriodCloseScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeriodCloseScheduler.class);
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    public PeriodCloseScheduler(BalanceSnapshotService balanceSnapshotService) {
+        this.balanceSnapshotService = balanceSnapshotService;
+    }
+
+    // the year end is closed together with December
+    @Scheduled(cron = "${sas.periods.close-cron:0 30 0 1 * *}")
+    public void closePreviousMonth() {
+        LocalDate periodEnd = LocalDate.now().withDayOfMonth(1).minusDays(1);
+        int snapshots = balanceSnapshotService.closePeriod(periodEnd);
+        LOGGER.info("Closed period ending {} with {} balance snapshots", periodEnd, snapshots);
+    }
+}
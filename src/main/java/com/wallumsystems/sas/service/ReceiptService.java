@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.Receipt;
+import com.wallumsystems.sas.entity.ReceiptEntity;
+import com.wallumsystems.sas.repository.ReceiptRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ReceiptService {
+
+    private final ReceiptStore receiptStore;
+
+    private final ReceiptRepository receiptRepository;
+
+    private final RecordRepository recordRepository;
+
+    private final TransactionTemplate transaction;
+
+    public ReceiptService(ReceiptStore receiptStore, ReceiptRepository receiptRepository, RecordRepository recordRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.receiptStore = receiptStore;
+        this.receiptRepository = receiptRepository;
+        this.recordRepository = recordRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    // An empty result means that the record does not exist. The upload is written to the store before the
+    // transaction starts, so a slow client never holds a connection. Records are never deleted, so the early
+    // existence check stays true, and content stored for a failed insert is only an unreferenced file.
+    public Optional<ReceiptEntity> storeReceipt(Long recordId, String name, MultipartFile file) throws IOException {
+        if (!recordRepository.existsById(recordId))
+            return Optional.empty();
+        ReceiptStore.StoredContent storedContent;
+        try (InputStream content = file.getInputStream()) {
+            storedContent = receiptStore.store(content);
+        }
+        return Optional.of(transaction.execute(status -> receiptRepository.save(ReceiptEntity.builder()
+                .recordEntity(recordRepository.getById(recordId))
+                .name(name != null ? name : file.getOriginalFilename())
+                .contentHash(storedContent.hash())
+                .contentLength(storedContent.length())
+                .contentType(file.getContentType())
+                .build())));
+    }
+
+    // an empty result means that the record does not exist
+    @Transactional(readOnly = true)
+    public Optional<List<Receipt>> getReceipts(Long recordId) {
+        if (!recordRepository.existsById(recordId))
+            return Optional.empty();
+        return Optional.of(receiptRepository.findAllByRecordEntityId(recordId).stream()
+                .map(receiptEntity -> toReceipt(recordId, receiptEntity))
+                .toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ReceiptEntity> getReceipt(Long recordId, Long receiptId) {
+        return receiptRepository.findByIdAndRecordEntityId(receiptId, recordId);
+    }
+
+    private static Receipt toReceipt(Long recordId, ReceiptEntity receiptEntity) {
+        return new Receipt(Math.toIntExact(receiptEntity.getId()), Math.toIntExact(recordId),
+                receiptEntity.getName(), receiptEntity.getContentType(), receiptEntity.getContentLength(),
+                receiptEntity.getContentHash(), receiptEntity.getCreationTime().toInstant().atOffset(ZoneOffset.UTC));
+    }
+}
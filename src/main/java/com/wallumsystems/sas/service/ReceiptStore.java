@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// content addressed files on the local disk, equal content is stored once
+@Service
+public class ReceiptStore {
+
+    private static final long TRANSFER_CHUNK = 1 << 20;
+
+    private final Path directory;
+
+    public ReceiptStore(@Value("${sas.receipts.directory:receipts}") String directory) throws IOException {
+        this.directory = Files.createDirectories(Paths.get(directory)).toRealPath();
+    }
+
+    public record StoredContent(String hash, long length) {
+    }
+
+    // streams the content through the digest into a temporary file, the heap only ever holds one transfer buffer
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path temporaryFile = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            long length = 0;
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, digest));
+                 FileChannel target = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                long transferred;
+                while ((transferred = target.transferFrom(source, length, TRANSFER_CHUNK)) > 0)
+                    length += transferred;
+                target.force(true);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path contentFile = pathOf(hash);
+            if (Files.exists(contentFile)) {
+                Files.delete(temporaryFile);
+            } else {
+                Files.createDirectories(contentFile.getParent());
+                Files.move(temporaryFile, contentFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredContent(hash, length);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    public Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
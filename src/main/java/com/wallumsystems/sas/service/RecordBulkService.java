@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.BulkRecordResult;
+import com.wallumsystems.sas.component.BulkRevertRequest;
+import com.wallumsystems.sas.component.BulkRevertResult;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class RecordBulkService {
+
+    private final EntityManager entityManager;
+
+    private final RecordService recordService;
+
+    private final RecordRepository recordRepository;
+
+    private final EntityToComponentConverter entityToComponentConverter;
+
+    private final AccountCache accountCache;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    public RecordBulkService(EntityManager entityManager,
+                             RecordService recordService,
+                             RecordRepository recordRepository,
+                             EntityToComponentConverter entityToComponentConverter,
+                             AccountCache accountCache,
+                             Validator validator,
+                             @Value("${sas.records.bulk.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.recordService = recordService;
+        this.recordRepository = recordRepository;
+        this.entityToComponentConverter = entityToComponentConverter;
+        this.accountCache = accountCache;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    // every chunk is committed on its own, a failing chunk does not roll back the ones before it
+    public List<BulkRecordResult> postRecords(Iterator<NewRecord> newRecords) {
+        List<BulkRecordResult> results = new ArrayList<>();
+        List<NewRecord> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            NewRecord newRecord;
+            try {
+                if (!newRecords.hasNext())
+                    break;
+                newRecord = newRecords.next();
+            } catch (RuntimeException e) {
+                // the input is unreadable from here on, keep what has been parsed so far
+                postChunk(chunk, index, results);
+                results.add(BulkRecordResult.rejected(index + chunk.size(), "Malformed input: " + e.getMessage()));
+                return sorted(results);
+            }
+            chunk.add(newRecord);
+            if (chunk.size() == chunkSize) {
+                postChunk(chunk, index, results);
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+        postChunk(chunk, index, results);
+        return sorted(results);
+    }
+
+    // the result has one entry per distinct id in request order, every chunk is committed on its own
+    public List<BulkRevertResult> revertRecords(BulkRevertRequest bulkRevertRequest) {
+        List<Long> ids = new ArrayList<>(idsToRevert(bulkRevertRequest));
+        List<BulkRevertResult> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            try {
+                results.addAll(recordService.revertRecords(chunk));
+            } catch (RuntimeException e) {
+                // the chunk has been rolled back as a whole
+                for (Long id : chunk)
+                    results.add(BulkRevertResult.failed(id, e.getMessage()));
+            }
+            detachChunk();
+        }
+        return results;
+    }
+
+    private Set<Long> idsToRevert(BulkRevertRequest bulkRevertRequest) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (bulkRevertRequest.ids() != null)
+            for (Integer id : bulkRevertRequest.ids())
+                if (id != null)
+                    ids.add(id.longValue());
+        BulkRevertRequest.Filter filter = bulkRevertRequest.filter();
+        if (filter != null)
+            ids.addAll(recordRepository.findRevertibleIds(
+                    filter.accountId() != null ? filter.accountId().longValue() : null,
+                    filter.bookedFrom() != null ? Date.valueOf(filter.bookedFrom()) : null,
+                    filter.bookedUntil() != null ? Date.valueOf(filter.bookedUntil()) : null,
+                    filter.createdFrom() != null ? Timestamp.from(filter.createdFrom().toInstant()) : null,
+                    filter.createdUntil() != null ? Timestamp.from(filter.createdUntil().toInstant()) : null));
+        return ids;
+    }
+
+    private void postChunk(List<NewRecord> chunk, int firstIndex, List<BulkRecordResult> results) {
+        if (chunk.isEmpty())
+            return;
+        // resolves every account of the chunk up front, the converter then only hits the cache
+        accountCache.findAllById(accountIdsOf(chunk));
+        List<RecordEntity> recordEntities = new ArrayList<>(chunk.size());
+        List<Integer> indexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            NewRecord newRecord = chunk.get(i);
+            Set<ConstraintViolation<NewRecord>> violations = validator.validate(newRecord);
+            if (!violations.isEmpty()) {
+                results.add(BulkRecordResult.rejected(firstIndex + i, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", "))));
+                continue;
+            }
+            try {
+                recordEntities.add(entityToComponentConverter.newRecordToRecordEntity(newRecord));
+                indexes.add(firstIndex + i);
+            } catch (AccountEntityNotFoundException e) {
+                results.add(BulkRecordResult.rejected(firstIndex + i, "Unknown account"));
+            } catch (ArithmeticException e) {
+                results.add(BulkRecordResult.rejected(firstIndex + i, "Amount is not representable in cents"));
+            }
+        }
+        if (recordEntities.isEmpty())
+            return;
+        try {
+            recordService.postRecords(recordEntities);
+            for (int i = 0; i < recordEntities.size(); i++)
+                results.add(BulkRecordResult.created(indexes.get(i), recordEntities.get(i).getId()));
+        } catch (RuntimeException e) {
+            // the chunk has been rolled back as a whole
+            for (Integer index : indexes)
+                results.add(BulkRecordResult.failed(index, e.getMessage()));
+        }
+        detachChunk();
+    }
+
+    // the request keeps one persistence context open across all chunks (open-in-view), so a committed chunk is
+    // detached before the next one instead of piling up in it
+    private void detachChunk() {
+        entityManager.clear();
+    }
+
+    private static Set<Long> accountIdsOf(List<NewRecord> newRecords) {
+        Set<Long> accountIds = new HashSet<>();
+        for (NewRecord newRecord : newRecords) {
+            if (newRecord.getFromAccountId() != null)
+                accountIds.add(Long.valueOf(newRecord.getFromAccountId()));
+            if (newRecord.getToAccountId() != null)
+                accountIds.add(Long.valueOf(newRecord.getToAccountId()));
+            if (newRecord.getTaxRecord() != null) {
+                if (newRecord.getTaxRecord().getFromAccountId() != null)
+                    accountIds.add(Long.valueOf(newRecord.getTaxRecord().getFromAccountId()));
+                if (newRecord.getTaxRecord().getToAccountId() != null)
+                    accountIds.add(Long.valueOf(newRecord.getTaxRecord().getToAccountId()));
+            }
+        }
+        return accountIds;
+    }
+
+    private static List<BulkRecordResult> sorted(List<BulkRecordResult> results) {
+        results.sort(Comparator.comparingInt(BulkRecordResult::index));
+        return results;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.ExportFormat;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.repository.RecordView;
+import com.wallumsystems.sas.util.CsvWriter;
+import com.wallumsystems.sas.util.MinorUnits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class RecordExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int DATEV_TEXT_LENGTH = 60;
+
+    private static final DateTimeFormatter DATEV_DATE = DateTimeFormatter.ofPattern("ddMM");
+
+    private final RecordRepository recordRepository;
+
+    private final AccountRepository accountRepository;
+
+    private final String currency;
+
+    private final int flushInterval;
+
+    public RecordExportService(RecordRepository recordRepository,
+                               AccountRepository accountRepository,
+                               @Value("${sas.export.currency:EUR}") String currency,
+                               @Value("${sas.export.flush-interval:10000}") int flushInterval) {
+        this.recordRepository = recordRepository;
+        this.accountRepository = accountRepository;
+        this.currency = currency;
+        this.flushInterval = flushInterval;
+    }
+
+    // rows go from the database cursor straight into the response, nothing is collected on the way
+    @Transactional(readOnly = true)
+    public void export(LocalDate from, LocalDate until, ExportFormat format, boolean gzip,
+                       OutputStream outputStream) throws IOException {
+        // the account table is small, looking names up per row would cost a query each
+        Map<Long, String> accountNames = accountRepository.findAll().stream()
+                .collect(Collectors.toMap(AccountEntity::getId, AccountEntity::getName));
+        // sync flush so the periodic flushes below reach the client through the compressor as well
+        GZIPOutputStream gzipOutputStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE, true) : null;
+        CsvWriter csvWriter = new CsvWriter(new BufferedWriter(new OutputStreamWriter(
+                gzip ? gzipOutputStream : outputStream, format.getCharset()), BUFFER_SIZE), format.getDelimiter());
+        writeHeader(csvWriter, format);
+        csvWriter.flush();
+        try (Stream<RecordView> recordViews = recordRepository.streamViewsBookedBetween(Date.valueOf(from), Date.valueOf(until))) {
+            Iterator<RecordView> iterator = recordViews.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                RecordView recordView = iterator.next();
+                if (format == ExportFormat.DATEV)
+                    writeDatevRow(csvWriter, recordView);
+                else
+                    writeCsvRow(csvWriter, recordView, accountNames);
+                if (++written % flushInterval == 0)
+                    csvWriter.flush();
+            }
+        }
+        csvWriter.flush();
+        // the response stream itself is closed by the container
+        if (gzipOutputStream != null)
+            gzipOutputStream.finish();
+    }
+
+    private static void writeHeader(CsvWriter csvWriter, ExportFormat format) throws IOException {
+        if (format == ExportFormat.DATEV)
+            csvWriter.writeRow("Umsatz (ohne Soll/Haben-Kz)", "Soll/Haben-Kennzeichen", "WKZ Umsatz", "Konto",
+                    "Gegenkonto (ohne BU-Schlüssel)", "Belegdatum", "Belegfeld 1", "Buchungstext");
+        else
+            csvWriter.writeRow("id", "bookingDate", "fromAccountId", "fromAccount", "toAccountId", "toAccount",
+                    "amount", "description", "creationTime", "taxRecordId", "revertingRecordId");
+    }
+
+    private static void writeCsvRow(CsvWriter csvWriter, RecordView recordView, Map<Long, String> accountNames)
+            throws IOException {
+        csvWriter.writeRow(
+                recordView.id().toString(),
+                recordView.bookingDate().toString(),
+                recordView.fromAccountId().toString(),
+                accountNames.get(recordView.fromAccountId()),
+                recordView.toAccountId().toString(),
+                accountNames.get(recordView.toAccountId()),
+                MinorUnits.toBigDecimal(recordView.value()).toPlainString(),
+                recordView.description(),
+                recordView.creationTime() != null ? recordView.creationTime().toInstant().toString() : null,
+                recordView.taxRecordId() != null ? recordView.taxRecordId().toString() : null,
+                recordView.revertingRecordId() != null ? recordView.revertingRecordId().toString() : null);
+    }
+
+    // the receiving account is debited, amounts are unsigned with a decimal comma
+    private void writeDatevRow(CsvWriter csvWriter, RecordView recordView) throws IOException {
+        long value = recordView.value();
+        String description = recordView.description() == null ? "" : recordView.description();
+        csvWriter.writeRow(
+                MinorUnits.toBigDecimal(Math.abs(value)).toPlainString().replace('.', ','),
+                value >= 0 ? "S" : "H",
+                currency,
+                recordView.toAccountId().toString(),
+                recordView.fromAccountId().toString(),
+                recordView.bookingDate().toLocalDate().format(DATEV_DATE),
+                recordView.id().toString(),
+                description.length() > DATEV_TEXT_LENGTH ? description.substring(0, DATEV_TEXT_LENGTH) : description);
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallumsystems.sas.component.ImportStatus;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.exception.ImportCapacityExceededException;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import com.wallumsystems.sas.util.CsvReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// reader -> parallel validators -> batch writer, connected by bounded queues so memory does not grow with the file
+@Service
+public class RecordImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordImportService.class);
+
+    private static final int DESCRIPTION_LENGTH = 255;
+
+    private final RecordService recordService;
+
+    private final EntityToComponentConverter entityToComponentConverter;
+
+    private final AccountCache accountCache;
+
+    private final Validator validator;
+
+    private final ImportProperties importProperties;
+
+    private final List<CompiledRule> rules;
+
+    private final DateTimeFormatter dateFormatter;
+
+    // bounded by the permits, each running import holds at most parallelism + 2 of its threads
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "record-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Semaphore runningImports;
+
+    private final Cache<String, ImportJob> jobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    private record CompiledRule(Pattern pattern, Long accountId) {
+    }
+
+    private record ImportLine(long number, List<String> fields) {
+    }
+
+    private record ImportedRecord(long line, RecordEntity recordEntity) {
+    }
+
+    public RecordImportService(RecordService recordService,
+                               EntityToComponentConverter entityToComponentConverter,
+                               AccountCache accountCache,
+                               Validator validator,
+                               ImportProperties importProperties) {
+        this.recordService = recordService;
+        this.entityToComponentConverter = entityToComponentConverter;
+        this.accountCache = accountCache;
+        this.validator = validator;
+        this.importProperties = importProperties;
+        this.rules = importProperties.getRules().stream()
+                .map(rule -> new CompiledRule(Pattern.compile(rule.getPattern()), rule.getAccountId()))
+                .toList();
+        this.dateFormatter = DateTimeFormatter.ofPattern(importProperties.getDatePattern());
+        this.runningImports = new Semaphore(Math.max(1, importProperties.getMaxConcurrentImports()));
+    }
+
+    // The upload is moved out of the request first, the import runs after the response has been sent. A missing
+    // or unknown bank account would reject every line, so it fails the request instead.
+    public ImportStatus startImport(MultipartFile file, Long bankAccountId)
+            throws IOException, AccountEntityNotFoundException, ImportCapacityExceededException {
+        Long statementAccountId = bankAccountId != null ? bankAccountId : importProperties.getBankAccountId();
+        if (statementAccountId == null || accountCache.findById(statementAccountId).isEmpty())
+            throw new AccountEntityNotFoundException();
+        if (!runningImports.tryAcquire())
+            throw new ImportCapacityExceededException();
+        // released by the writer once the import has finished
+        try {
+            Path upload = Files.createTempFile("record-import-", ".csv");
+            file.transferTo(upload);
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), statementAccountId, importProperties.getMaxReportedRejects());
+            jobs.put(job.id, job);
+            executor.execute(() -> run(job, upload));
+            return job.status();
+        } catch (IOException | RuntimeException e) {
+            runningImports.release();
+            throw e;
+        }
+    }
+
+    public Optional<ImportStatus> getStatus(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(ImportJob::status);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path upload) {
+        int parallelism = Math.max(1, importProperties.getParallelism());
+        BlockingQueue<List<ImportLine>> parsedLines = new ArrayBlockingQueue<>(importProperties.getQueueCapacity());
+        BlockingQueue<List<ImportedRecord>> validRecords = new ArrayBlockingQueue<>(importProperties.getQueueCapacity());
+        for (int i = 0; i < parallelism; i++)
+            executor.execute(() -> validate(job, parsedLines, validRecords));
+        executor.execute(() -> write(job, validRecords, parallelism, upload));
+        try {
+            read(job, upload, parsedLines);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Import {} stopped reading", job.id, e);
+            job.message = "Unreadable input: " + e.getMessage();
+            job.failed = true;
+        } catch (InterruptedException e) {
+            job.failed = true;
+            Thread.currentThread().interrupt();
+        } finally {
+            // an empty chunk tells a validator that there is nothing left
+            for (int i = 0; i < parallelism; i++)
+                putUninterruptibly(parsedLines, List.of());
+        }
+    }
+
+    private void read(ImportJob job, Path upload, BlockingQueue<List<ImportLine>> parsedLines)
+            throws IOException, InterruptedException {
+        int chunkSize = importProperties.getBatchSize();
+        try (CsvReader csvReader = new CsvReader(
+                Files.newBufferedReader(upload, Charset.forName(importProperties.getCharset())),
+                importProperties.getDelimiter())) {
+            if (importProperties.isSkipHeader())
+                csvReader.readRow();
+            long lineNumber = importProperties.isSkipHeader() ? 1 : 0;
+            List<ImportLine> chunk = new ArrayList<>(chunkSize);
+            List<String> row;
+            while ((row = csvReader.readRow()) != null) {
+                lineNumber++;
+                if (row.size() == 1 && row.get(0).isBlank())
+                    continue;
+                job.linesRead.incrementAndGet();
+                chunk.add(new ImportLine(lineNumber, row));
+                if (chunk.size() == chunkSize) {
+                    parsedLines.put(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty())
+                parsedLines.put(chunk);
+        }
+    }
+
+    private void validate(ImportJob job, BlockingQueue<List<ImportLine>> parsedLines,
+                          BlockingQueue<List<ImportedRecord>> validRecords) {
+        try {
+            List<ImportLine> chunk;
+            while (!(chunk = parsedLines.take()).isEmpty()) {
+                List<ImportedRecord> importedRecords = new ArrayList<>(chunk.size());
+                for (ImportLine importLine : chunk) {
+                    try {
+                        importedRecords.add(new ImportedRecord(importLine.number(), toRecordEntity(importLine, job.bankAccountId)));
+                    } catch (IllegalArgumentException e) {
+                        job.reject(importLine.number(), e.getMessage());
+                    }
+                }
+                if (!importedRecords.isEmpty())
+                    validRecords.put(importedRecords);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putUninterruptibly(validRecords, List.of());
+        }
+    }
+
+    private void write(ImportJob job, BlockingQueue<List<ImportedRecord>> validRecords, int producers, Path upload) {
+        int batchSize = importProperties.getBatchSize();
+        List<ImportedRecord> batch = new ArrayList<>(batchSize);
+        int finishedProducers = 0;
+        try {
+            while (finishedProducers < producers) {
+                List<ImportedRecord> chunk = validRecords.take();
+                if (chunk.isEmpty()) {
+                    finishedProducers++;
+                    continue;
+                }
+                batch.addAll(chunk);
+                if (batch.size() >= batchSize) {
+                    post(job, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            post(job, batch);
+        } catch (InterruptedException e) {
+            job.failed = true;
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete the upload of import {}", job.id, e);
+            }
+            job.finish();
+            runningImports.release();
+        }
+    }
+
+    private void post(ImportJob job, List<ImportedRecord> batch) {
+        if (batch.isEmpty())
+            return;
+        try {
+            recordService.postRecords(batch.stream().map(ImportedRecord::recordEntity).toList());
+            job.linesImported.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // the batch has been rolled back as a whole
+            for (ImportedRecord importedRecord : batch)
+                job.reject(importedRecord.line(), "Not stored: " + e.getMessage());
+        }
+    }
+
+    // throws an IllegalArgumentException with the reason for a rejected line
+    private RecordEntity toRecordEntity(ImportLine importLine, Long bankAccountId) {
+        ImportProperties.Columns columns = importProperties.getColumns();
+        String counterparty = field(importLine, columns.getCounterparty());
+        String description = field(importLine, columns.getDescription());
+        LocalDate bookingDate;
+        try {
+            bookingDate = LocalDate.parse(field(importLine, columns.getBookingDate()).trim(), dateFormatter);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid booking date");
+        }
+        BigDecimal amount = parseAmount(field(importLine, columns.getAmount()));
+        Long counterAccountId = counterAccountOf(counterparty + " " + description);
+        if (counterAccountId == null)
+            throw new IllegalArgumentException("No rule matches and there is no default account");
+        boolean incoming = amount.signum() >= 0;
+        NewRecord newRecord = new NewRecord()
+                .description(truncate((counterparty.isBlank() ? "" : counterparty.trim() + ": ") + description.trim()))
+                .fromAccountId(Math.toIntExact(incoming ? counterAccountId : bankAccountId))
+                .toAccountId(Math.toIntExact(incoming ? bankAccountId : counterAccountId))
+                .amount(amount.abs())
+                .bookingDate(bookingDate);
+        Set<ConstraintViolation<NewRecord>> violations = validator.validate(newRecord);
+        if (!violations.isEmpty())
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+        try {
+            return entityToComponentConverter.newRecordToRecordEntity(newRecord);
+        } catch (AccountEntityNotFoundException e) {
+            throw new IllegalArgumentException("Unknown account");
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is not representable in cents");
+        }
+    }
+
+    private Long counterAccountOf(String text) {
+        for (CompiledRule rule : rules)
+            if (rule.pattern().matcher(text).find())
+                return rule.accountId();
+        return importProperties.getDefaultAccountId();
+    }
+
+    private BigDecimal parseAmount(String value) {
+        String normalized = value.trim().replace(" ", "");
+        // grouping separators are dropped, the decimal separator becomes a dot
+        if (importProperties.getDecimalSeparator() == ',')
+            normalized = normalized.replace(".", "").replace(',', '.');
+        else
+            normalized = normalized.replace(",", "");
+        try {
+            return new BigDecimal(normalized);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+    }
+
+    private static String field(ImportLine importLine, int column) {
+        if (column >= importLine.fields().size())
+            throw new IllegalArgumentException("Missing column " + column);
+        return importLine.fields().get(column);
+    }
+
+    private static String truncate(String description) {
+        return description.length() > DESCRIPTION_LENGTH ? description.substring(0, DESCRIPTION_LENGTH) : description;
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T element) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(element);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static class ImportJob {
+        private final String id;
+        private final Long bankAccountId;
+        private final int maxReportedRejects;
+        private final OffsetDateTime startTime = OffsetDateTime.now();
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong linesImported = new AtomicLong();
+        private final AtomicLong linesRejected = new AtomicLong();
+        private final ConcurrentLinkedQueue<ImportStatus.Reject> rejects = new ConcurrentLinkedQueue<>();
+        private volatile boolean failed;
+        private volatile String message;
+        private volatile OffsetDateTime endTime;
+
+        private ImportJob(String id, Long bankAccountId, int maxReportedRejects) {
+            this.id = id;
+            this.bankAccountId = bankAccountId;
+            this.maxReportedRejects = maxReportedRejects;
+        }
+
+        private void reject(long line, String reason) {
+            if (linesRejected.incrementAndGet() <= maxReportedRejects)
+                rejects.add(new ImportStatus.Reject(line, reason));
+        }
+
+        private void finish() {
+            endTime = OffsetDateTime.now();
+        }
+
+        private ImportStatus status() {
+            ImportStatus.State state = endTime == null ? ImportStatus.State.RUNNING
+                    : failed ? ImportStatus.State.FAILED : ImportStatus.State.COMPLETED;
+            return new ImportStatus(id, state, linesRead.get(), linesImported.get(), linesRejected.get(),
+                    List.copyOf(rejects), message, startTime, endTime);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wallumsystems.sas.component.RecordCursor;
+import com.wallumsystems.sas.component.RecordPage;
+import com.wallumsystems.sas.repository.RecordFilter;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.repository.RecordView;
+import com.wallumsystems.sas.swagger.model.Record;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class RecordListingService {
+
+    private final RecordRepository recordRepository;
+
+    private final EntityToComponentConverter entityToComponentConverter;
+
+    private final ObjectWriter recordWriter;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    private final int streamFlushInterval;
+
+    public RecordListingService(RecordRepository recordRepository,
+                                EntityToComponentConverter entityToComponentConverter,
+                                ObjectMapper objectMapper,
+                                @Value("${sas.records.page.default-size:100}") int defaultPageSize,
+                                @Value("${sas.records.page.max-size:1000}") int maxPageSize,
+                                @Value("${sas.records.stream.flush-interval:1000}") int streamFlushInterval) {
+        this.recordRepository = recordRepository;
+        this.entityToComponentConverter = entityToComponentConverter;
+        this.recordWriter = objectMapper.writerFor(Record.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.streamFlushInterval = streamFlushInterval;
+    }
+
+    @Transactional(readOnly = true)
+    public RecordPage getPage(RecordFilter filter, RecordCursor after, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        // fetch one more row than requested to know whether there is a next page without counting
+        List<RecordView> recordViews = recordRepository.findViews(filter,
+                after != null ? after.bookingDate() : null, after != null ? after.id() : null, pageSize + 1);
+        boolean hasNext = recordViews.size() > pageSize;
+        List<RecordView> pageViews = hasNext ? recordViews.subList(0, pageSize) : recordViews;
+        String nextCursor = null;
+        if (hasNext) {
+            RecordView last = pageViews.get(pageViews.size() - 1);
+            nextCursor = new RecordCursor(last.bookingDate().toLocalDate(), last.id()).encode();
+        }
+        return new RecordPage(
+                pageViews.stream().map(entityToComponentConverter::recordViewToRecord).toList(),
+                nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAll(OutputStream outputStream) throws IOException {
+        try (Stream<RecordView> recordViews = recordRepository.streamAllViews();
+             JsonGenerator generator = recordWriter.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            Iterator<RecordView> iterator = recordViews.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                recordWriter.writeValue(generator, entityToComponentConverter.recordViewToRecord(iterator.next()));
+                if (++written % streamFlushInterval == 0)
+                    generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
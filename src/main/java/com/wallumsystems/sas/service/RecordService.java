@@ -20,21 +20,170 @@
 
 package com.wallumsystems.sas.service;
 
+import com.wallumsystems.sas.component.BulkRevertResult;
 import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
 import com.wallumsystems.sas.entity.RevertingRecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.exception.RecordAlreadyRevertedException;
+import com.wallumsystems.sas.exception.RecordNotRevertibleException;
+import com.wallumsystems.sas.repository.RecordRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class RecordService {
+
+    private final EntityManager entityManager;
+
+    private final RecordRepository recordRepository;
+
+    private final AccountBalanceService accountBalanceService;
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public RecordService(EntityManager entityManager,
+                         RecordRepository recordRepository,
+                         AccountBalanceService accountBalanceService,
+                         BalanceSnapshotService balanceSnapshotService,
+                         ApplicationEventPublisher applicationEventPublisher) {
+        this.entityManager = entityManager;
+        this.recordRepository = recordRepository;
+        this.accountBalanceService = accountBalanceService;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
     public RevertingRecordEntity getRevertingRecord(RecordEntity recordEntity) {
         // TODO: should there be an addition to the description to mark the reversion?
         return RevertingRecordEntity.builder()
                 .description(recordEntity.getDescription())
                 .fromAccountEntity(recordEntity.getFromAccountEntity())
                 .toAccountEntity(recordEntity.getToAccountEntity())
-                .value((-1.0) * recordEntity.getValue())
+                .value(Math.negateExact(recordEntity.getValue()))
                 .bookingDate(recordEntity.getBookingDate())
                 .recordEntity(recordEntity)
                 .build();
     }
+
+    @Transactional
+    public RecordEntity postRecord(RecordEntity recordEntity) {
+        entityManager.persist(recordEntity);
+        applyPosting(withTaxRecords(List.of(recordEntity)));
+        return recordEntity;
+    }
+
+    // one transaction per call, the inserts are grouped into JDBC batches on flush
+    @Transactional
+    public void postRecords(List<RecordEntity> recordEntities) {
+        for (RecordEntity recordEntity : recordEntities)
+            entityManager.persist(recordEntity);
+        applyPosting(withTaxRecords(recordEntities));
+    }
+
+    // locks the record like the bulk revert, so a second request for the same record waits and then sees the first
+    // reversion instead of posting it again, returns the reverted record or empty if it does not exist
+    @Transactional
+    public Optional<RecordEntity> revertRecord(Long id) throws RecordNotRevertibleException, RecordAlreadyRevertedException {
+        List<RecordEntity> recordEntities = recordRepository.findAllForRevert(List.of(id));
+        if (recordEntities.isEmpty())
+            return Optional.empty();
+        RecordEntity recordEntity = recordEntities.get(0);
+        if (!isRevertible(recordEntity))
+            throw new RecordNotRevertibleException();
+        if (recordEntity.getRevertingRecord() != null)
+            throw new RecordAlreadyRevertedException();
+        List<RecordEntity> revertingRecords = new ArrayList<>();
+        revertingRecords.add(persistRevertingRecord(recordEntity));
+        // TODO: should the reverting tax record be marked as tax record of the reverting record of the original record?
+        if (recordEntity.getTaxRecord() != null)
+            revertingRecords.add(persistRevertingRecord(recordEntity.getTaxRecord()));
+        applyPosting(revertingRecords);
+        return Optional.of(recordEntity);
+    }
+
+    // The checks of revertRecord without a lock, for journal mode where the projection reverts later. Two reverts
+    // of the same record can still both pass before the first is applied, the projection skips the second.
+    @Transactional(readOnly = true)
+    public Optional<RecordEntity> findRevertible(Long id) throws RecordNotRevertibleException, RecordAlreadyRevertedException {
+        Optional<RecordEntity> recordEntity = recordRepository.findById(id);
+        if (recordEntity.isPresent() && !isRevertible(recordEntity.get()))
+            throw new RecordNotRevertibleException();
+        if (recordEntity.isPresent() && recordEntity.get().getRevertingRecord() != null)
+            throw new RecordAlreadyRevertedException();
+        return recordEntity;
+    }
+
+    // loads the records with one statement and reverts them in one transaction, the inserts are batched on flush
+    @Transactional
+    public List<BulkRevertResult> revertRecords(Collection<Long> ids) {
+        Map<Long, RecordEntity> recordEntities = recordRepository.findAllForRevert(ids).stream()
+                .collect(Collectors.toMap(RecordEntity::getId, Function.identity()));
+        List<BulkRevertResult> results = new ArrayList<>(ids.size());
+        List<RecordEntity> revertingRecords = new ArrayList<>();
+        for (Long id : ids) {
+            RecordEntity recordEntity = recordEntities.get(id);
+            if (recordEntity == null) {
+                results.add(BulkRevertResult.notFound(id));
+            } else if (!isRevertible(recordEntity)) {
+                results.add(BulkRevertResult.notRevertible(id));
+            } else if (recordEntity.getRevertingRecord() != null) {
+                results.add(BulkRevertResult.alreadyReverted(id, recordEntity.getRevertingRecord().getId()));
+            } else {
+                RevertingRecordEntity revertingRecord = persistRevertingRecord(recordEntity);
+                revertingRecords.add(revertingRecord);
+                if (recordEntity.getTaxRecord() != null)
+                    revertingRecords.add(persistRevertingRecord(recordEntity.getTaxRecord()));
+                results.add(BulkRevertResult.reverted(id, revertingRecord.getId()));
+            }
+        }
+        if (!revertingRecords.isEmpty())
+            applyPosting(revertingRecords);
+        return results;
+    }
+
+    private void applyPosting(List<RecordEntity> postedRecords) {
+        // the inserts have to hit the database before a concurrent period close can be detected
+        entityManager.flush();
+        accountBalanceService.apply(postedRecords);
+        balanceSnapshotService.adjust(postedRecords);
+        applicationEventPublisher.publishEvent(new RecordsPostedEvent(List.copyOf(postedRecords)));
+    }
+
+    private RevertingRecordEntity persistRevertingRecord(RecordEntity recordEntity) {
+        RevertingRecordEntity revertingRecord = getRevertingRecord(recordEntity);
+        entityManager.persist(revertingRecord);
+        recordEntity.setRevertingRecord(revertingRecord);
+        return revertingRecord;
+    }
+
+    // reverting and tax records are reverted through their record, recurring records through their occurrences
+    private static boolean isRevertible(RecordEntity recordEntity) {
+        return !(recordEntity instanceof RevertingRecordEntity
+                || recordEntity instanceof TaxRecordEntity
+                || recordEntity instanceof RecurringRecordEntity);
+    }
+
+    private static List<RecordEntity> withTaxRecords(List<RecordEntity> recordEntities) {
+        List<RecordEntity> postedRecords = new ArrayList<>(recordEntities.size());
+        for (RecordEntity recordEntity : recordEntities) {
+            postedRecords.add(recordEntity);
+            if (recordEntity.getTaxRecord() != null)
+                postedRecords.add(recordEntity.getTaxRecord());
+        }
+        return postedRecords;
+    }
 }
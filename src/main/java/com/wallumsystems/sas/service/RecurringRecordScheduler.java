@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.repository.RecurringRecordRepository;
+import com.wallumsystems.sas.repository.RecurringSchedule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class RecurringRecordScheduler {
+
+    private final RecurringRecordRepository recurringRecordRepository;
+
+    private final RecurringRecordService recurringRecordService;
+
+    private final int batchSize;
+
+    private final int recurringRecordsPerBatch;
+
+    private final Counter materializedCounter;
+
+    private final Timer runTimer;
+
+    private final AtomicLong lagDays = new AtomicLong();
+
+    public RecurringRecordScheduler(RecurringRecordRepository recurringRecordRepository,
+                                    RecurringRecordService recurringRecordService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${sas.recurring.batch-size:1000}") int batchSize,
+                                    @Value("${sas.recurring.records-per-batch:100}") int recurringRecordsPerBatch) {
+        this.recurringRecordRepository = recurringRecordRepository;
+        this.recurringRecordService = recurringRecordService;
+        this.batchSize = batchSize;
+        this.recurringRecordsPerBatch = recurringRecordsPerBatch;
+        this.materializedCounter = Counter.builder("sas.recurring.materialized")
+                .description("Records created from recurring records")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("sas.recurring.run")
+                .description("Duration of a materialization run")
+                .register(meterRegistry);
+        meterRegistry.gauge("sas.recurring.lag.days", lagDays);
+    }
+
+    @Scheduled(fixedDelayString = "${sas.recurring.fixed-delay:60000}")
+    public void materializeDueRecords() {
+        runTimer.record(() -> materializeDueRecords(LocalDate.now()));
+    }
+
+    void materializeDueRecords(LocalDate today) {
+        List<Long> dueIds = new ArrayList<>();
+        LocalDate oldestDue = today;
+        for (RecurringSchedule schedule : recurringRecordRepository.findSchedules()) {
+            long intervalDays = RecurringRecordService.intervalDays(schedule.recurrenceInterval());
+            if (intervalDays <= 0)
+                continue;
+            LocalDate next = RecurringRecordService.nextOccurrence(schedule.startDate(), intervalDays, schedule.materializedUntil());
+            if (next.isAfter(today))
+                continue;
+            dueIds.add(schedule.id());
+            if (next.isBefore(oldestDue))
+                oldestDue = next;
+        }
+        // the lag measured before catching up stays visible until the next run
+        lagDays.set(ChronoUnit.DAYS.between(oldestDue, today));
+
+        // after downtime a recurring record can be due many times, it is caught up in full batches
+        for (int from = 0; from < dueIds.size(); from += recurringRecordsPerBatch) {
+            List<Long> batchIds = dueIds.subList(from, Math.min(from + recurringRecordsPerBatch, dueIds.size()));
+            int materialized;
+            do {
+                materialized = recurringRecordService.materialize(batchIds, today, batchSize);
+                materializedCounter.increment(materialized);
+            } while (materialized == batchSize);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import com.wallumsystems.sas.repository.RecurringRecordRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class RecurringRecordService {
+
+    private final RecurringRecordRepository recurringRecordRepository;
+
+    private final RecordService recordService;
+
+    public RecurringRecordService(RecurringRecordRepository recurringRecordRepository, RecordService recordService) {
+        this.recurringRecordRepository = recurringRecordRepository;
+        this.recordService = recordService;
+    }
+
+    // the recurrence interval is stored as a timestamp after the epoch, read in local time so the zone of the jvm does not shift it
+    public static long intervalDays(Timestamp recurrenceInterval) {
+        return ChronoUnit.DAYS.between(LocalDate.EPOCH.atStartOfDay(), recurrenceInterval.toLocalDateTime());
+    }
+
+    // the recurring record itself is the first booking, occurrences follow every interval after the start date
+    public static LocalDate nextOccurrence(Date startDate, long intervalDays, Date materializedUntil) {
+        LocalDate last = materializedUntil == null ? startDate.toLocalDate() : materializedUntil.toLocalDate();
+        return last.plusDays(intervalDays);
+    }
+
+    // materializes at most maxRecords occurrences and moves the high-water marks in the same transaction
+    @Transactional
+    public int materialize(Collection<Long> recurringRecordIds, LocalDate today, int maxRecords) {
+        List<RecordEntity> occurrences = new ArrayList<>();
+        for (RecurringRecordEntity recurringRecord : recurringRecordRepository.findAllForUpdate(recurringRecordIds)) {
+            long intervalDays = intervalDays(recurringRecord.getRecurrenceInterval());
+            if (intervalDays <= 0)
+                continue;
+            LocalDate next = nextOccurrence(recurringRecord.getStartDate(), intervalDays, recurringRecord.getMaterializedUntil());
+            while (!next.isAfter(today) && occurrences.size() < maxRecords) {
+                occurrences.add(occurrenceOf(recurringRecord, Date.valueOf(next)));
+                recurringRecord.setMaterializedUntil(Date.valueOf(next));
+                next = next.plusDays(intervalDays);
+            }
+        }
+        // flushes the high-water marks together with the batched inserts
+        if (!occurrences.isEmpty())
+            recordService.postRecords(occurrences);
+        return occurrences.size();
+    }
+
+    private static RecordEntity occurrenceOf(RecurringRecordEntity recurringRecord, Date bookingDate) {
+        RecordEntity occurrence = RecordEntity.builder()
+                .description(recurringRecord.getDescription())
+                .fromAccountEntity(recurringRecord.getFromAccountEntity())
+                .toAccountEntity(recurringRecord.getToAccountEntity())
+                .value(recurringRecord.getValue())
+                .bookingDate(bookingDate)
+                .build();
+        TaxRecordEntity taxTemplate = recurringRecord.getTaxRecord();
+        if (taxTemplate != null)
+            occurrence.setTaxRecord(TaxRecordEntity.builder()
+                    .description(taxTemplate.getDescription())
+                    .fromAccountEntity(taxTemplate.getFromAccountEntity())
+                    .toAccountEntity(taxTemplate.getToAccountEntity())
+                    .value(taxTemplate.getValue())
+                    .bookingDate(bookingDate)
+                    .recordEntity(occurrence)
+                    .build());
+        return occurrence;
+    }
+}
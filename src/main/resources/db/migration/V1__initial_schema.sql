@@ -0,0 +1,81 @@
+create sequence hibernate_sequence start with 1 increment by 50;
+
+create table account
+(
+    id   bigint       not null,
+    name varchar(255) not null,
+    primary key (id),
+    constraint uk_account_name unique (name)
+) engine = InnoDB;
+
+create table record
+(
+    id                  bigint           not null,
+    booking_date        date             not null,
+    creation_time       datetime(6)      not null,
+    description         varchar(255),
+    value               double precision not null,
+    from_account_id     bigint           not null,
+    to_account_id       bigint           not null,
+    tax_record_id       bigint,
+    reverting_record_id bigint,
+    primary key (id),
+    constraint uk_record_tax_record unique (tax_record_id),
+    constraint uk_record_reverting_record unique (reverting_record_id)
+) engine = InnoDB;
+
+create table tax_record
+(
+    id bigint not null,
+    primary key (id)
+) engine = InnoDB;
+
+create table reverting_record
+(
+    id bigint not null,
+    primary key (id)
+) engine = InnoDB;
+
+create table recurring_record
+(
+    id                  bigint      not null,
+    recurrence_interval datetime(6) not null,
+    start_date          date        not null,
+    primary key (id)
+) engine = InnoDB;
+
+create table account_balance
+(
+    account_id     bigint           not null,
+    incoming_total double precision not null,
+    outgoing_total double precision not null,
+    primary key (account_id)
+) engine = InnoDB;
+
+create table balance_snapshot
+(
+    id             bigint           not null,
+    account_id     bigint           not null,
+    period_end     date             not null,
+    period_type    varchar(5)       not null,
+    incoming_total double precision not null,
+    outgoing_total double precision not null,
+    creation_time  datetime(6)      not null,
+    primary key (id),
+    constraint uk_balance_snapshot_account_period unique (account_id, period_end)
+) engine = InnoDB;
+
+alter table record
+    add constraint fk_record_from_account foreign key (from_account_id) references account (id),
+    add constraint fk_record_to_account foreign key (to_account_id) references account (id),
+    add constraint fk_record_tax_record foreign key (tax_record_id) references tax_record (id),
+    add constraint fk_record_reverting_record foreign key (reverting_record_id) references reverting_record (id);
+
+alter table tax_record
+    add constraint fk_tax_record_record foreign key (id) references record (id);
+
+alter table reverting_record
+    add constraint fk_reverting_record_record foreign key (id) references record (id);
+
+alter table recurring_record
+    add constraint fk_recurring_record_record foreign key (id) references record (id);
@@ -0,0 +1,22 @@
+-- amounts were stored as floating point euros, from now on they are exact cents
+update record
+set value = round(value * 100);
+
+alter table record
+    modify value bigint not null;
+
+update account_balance
+set incoming_total = round(incoming_total * 100),
+    outgoing_total = round(outgoing_total * 100);
+
+alter table account_balance
+    modify incoming_total bigint not null,
+    modify outgoing_total bigint not null;
+
+update balance_snapshot
+set incoming_total = round(incoming_total * 100),
+    outgoing_total = round(outgoing_total * 100);
+
+alter table balance_snapshot
+    modify incoming_total bigint not null,
+    modify outgoing_total bigint not null;
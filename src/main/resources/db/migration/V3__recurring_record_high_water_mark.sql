@@ -0,0 +1,2 @@
+alter table recurring_record
+    add column materialized_until date;
@@ -0,0 +1,12 @@
+create table receipt
+(
+    id             bigint       not null,
+    record_id      bigint       not null,
+    name           varchar(255),
+    content_hash   varchar(64)  not null,
+    content_length bigint       not null,
+    content_type   varchar(255),
+    creation_time  datetime(6)  not null,
+    primary key (id),
+    constraint fk_receipt_record foreign key (record_id) references record (id)
+) engine = InnoDB;
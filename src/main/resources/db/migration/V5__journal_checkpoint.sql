@@ -0,0 +1,9 @@
+create table journal_checkpoint
+(
+    id               int    not null,
+    applied_sequence bigint not null,
+    primary key (id)
+) engine = InnoDB;
+
+insert into journal_checkpoint (id, applied_sequence)
+values (1, 0);
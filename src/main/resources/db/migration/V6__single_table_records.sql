@@ -0,0 +1,33 @@
+-- the record subclasses move into the record table, told apart by record_type
+alter table record
+    add column record_type         varchar(31) not null default 'RECORD',
+    add column recurrence_interval datetime(6),
+    add column start_date          date,
+    add column materialized_until  date;
+
+update record r join tax_record t on t.id = r.id
+set r.record_type = 'TAX';
+
+update record r join reverting_record rr on rr.id = r.id
+set r.record_type = 'REVERTING';
+
+update record r join recurring_record rc on rc.id = r.id
+set r.record_type         = 'RECURRING',
+    r.recurrence_interval = rc.recurrence_interval,
+    r.start_date          = rc.start_date,
+    r.materialized_until  = rc.materialized_until;
+
+alter table record
+    alter column record_type drop default;
+
+alter table record
+    drop foreign key fk_record_tax_record,
+    drop foreign key fk_record_reverting_record;
+
+alter table record
+    add constraint fk_record_tax_record foreign key (tax_record_id) references record (id),
+    add constraint fk_record_reverting_record foreign key (reverting_record_id) references record (id);
+
+drop table tax_record;
+drop table reverting_record;
+drop table recurring_record;
@@ -0,0 +1,8 @@
+-- seeks for the record listing, the account indexes also back the account foreign keys
+create index idx_record_from_account_booking_date on record (from_account_id, booking_date);
+create index idx_record_to_account_booking_date on record (to_account_id, booking_date);
+create index idx_record_booking_date on record (booking_date);
+
+-- superseded by the composite indexes above
+drop index fk_record_from_account on record;
+drop index fk_record_to_account on record;
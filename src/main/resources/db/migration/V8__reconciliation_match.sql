@@ -0,0 +1,15 @@
+-- the statement line a record was reconciled with, a record is reconciled at most once
+create table reconciliation_match
+(
+    id                    bigint           not null,
+    record_id             bigint           not null,
+    statement_date        date             not null,
+    statement_amount      bigint           not null,
+    statement_reference   varchar(255),
+    statement_description varchar(255),
+    confidence            double precision,
+    creation_time         datetime(6)      not null,
+    primary key (id),
+    constraint uk_reconciliation_match_record unique (record_id),
+    constraint fk_reconciliation_match_record foreign key (record_id) references record (id)
+) engine = InnoDB;
@@ -0,0 +1,10 @@
+-- a single row, every instance tags and caches the listings with the version stored here
+create table ledger_version
+(
+    id      int    not null,
+    version bigint not null,
+    primary key (id)
+) engine = InnoDB;
+
+insert into ledger_version (id, version)
+values (1, 0);
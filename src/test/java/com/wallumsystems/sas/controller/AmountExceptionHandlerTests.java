@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.util.MinorUnits;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.NestedServletException;
+
+import java.math.BigDecimal;
+
+class AmountExceptionHandlerTests {
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new CentsController())
+            .setControllerAdvice(new AmountExceptionHandler())
+            .build();
+
+    @Test
+    void amountsThatAreNotRepresentableInCentsAreBadRequests() throws Exception {
+        Assertions.assertEquals(200, status("12.34"));
+        Assertions.assertEquals(400, status("0.005"));
+        Assertions.assertEquals(400, status("1e30"));
+    }
+
+    // an overflow of the server's own arithmetic is no fault of the client
+    @Test
+    void otherArithmeticFailuresAreNotMapped() {
+        NestedServletException exception = Assertions.assertThrows(NestedServletException.class,
+                () -> status(String.valueOf(Long.MAX_VALUE / 100)));
+        Assertions.assertInstanceOf(ArithmeticException.class, exception.getCause());
+    }
+
+    private int status(String amount) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/cents").param("amount", amount))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @RestController
+    static class CentsController {
+
+        @GetMapping("/cents")
+        ResponseEntity<Long> cents(@RequestParam("amount") BigDecimal amount) {
+            return new ResponseEntity<>(Math.addExact(MinorUnits.fromBigDecimal(amount), 100L), HttpStatus.OK);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.controller;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.ReceiptEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.ReceiptRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.service.ReceiptService;
+import com.wallumsystems.sas.service.ReceiptStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+
+// the receipt is stored before its transaction starts, so the record has to be committed
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReceiptControllerTests {
+
+    private static final byte[] SCRIPT = "<script>alert(document.cookie)</script>".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private ReceiptStore receiptStore;
+
+    private ReceiptService receiptService;
+
+    private MockMvc mockMvc;
+
+    private Long recordId;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        receiptStore = new ReceiptStore(directory.toString()) {
+            @Override
+            public StoredContent store(InputStream content) throws IOException {
+                Assertions.assertFalse(TransactionSynchronizationManager.isActualTransactionActive(),
+                        "The upload was copied inside a transaction");
+                return super.store(content);
+            }
+        };
+        receiptService = new ReceiptService(receiptStore, receiptRepository, recordRepository, transactionManager);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReceiptController(receiptService, receiptStore)).build();
+
+        // the records stay committed between the tests and account names are unique
+        AccountEntity from = accountRepository.save(AccountEntity.builder().name("from " + directory).build());
+        AccountEntity to = accountRepository.save(AccountEntity.builder().name("to " + directory).build());
+        recordId = recordRepository.save(RecordEntity.builder()
+                .fromAccountEntity(from)
+                .toAccountEntity(to)
+                .value(1000L)
+                .bookingDate(Date.valueOf(LocalDate.of(2022, 1, 1)))
+                .build()).getId();
+    }
+
+    @Test
+    void equalContentIsStoredOnce() throws Exception {
+        ReceiptEntity first = store("first.pdf", "application/pdf", "%PDF-1.7".getBytes(StandardCharsets.UTF_8));
+        ReceiptEntity second = store("second.pdf", "application/pdf", "%PDF-1.7".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(first.getContentHash(), second.getContentHash());
+        Assertions.assertEquals(8, Files.size(receiptStore.pathOf(first.getContentHash())));
+        Assertions.assertEquals(2, receiptService.getReceipts(recordId).orElseThrow().size());
+        Assertions.assertTrue(receiptService.storeReceipt(Long.MAX_VALUE, null,
+                new MockMultipartFile("receipt", SCRIPT)).isEmpty());
+    }
+
+    @Test
+    void scriptableContentIsOnlyServedAsAnAttachment() throws Exception {
+        ReceiptEntity receipt = store("receipt.html", "text/html", SCRIPT);
+
+        MockHttpServletResponse response = get(receipt, null);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("application/octet-stream", response.getContentType());
+        Assertions.assertEquals("nosniff", response.getHeader("X-Content-Type-Options"));
+        Assertions.assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).startsWith("attachment"));
+        Assertions.assertArrayEquals(SCRIPT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void imagesAreServedInline() throws Exception {
+        ReceiptEntity receipt = store("scan.png", "image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+
+        MockHttpServletResponse response = get(receipt, null);
+        Assertions.assertEquals("image/png", response.getContentType());
+        Assertions.assertEquals("nosniff", response.getHeader("X-Content-Type-Options"));
+        Assertions.assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).startsWith("inline"));
+    }
+
+    @Test
+    void singleRangesAreServedPartially() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        ReceiptEntity receipt = store("digits.txt", "text/plain", content);
+
+        MockHttpServletResponse partial = get(receipt, "bytes=2-5");
+        Assertions.assertEquals(206, partial.getStatus());
+        Assertions.assertEquals("bytes 2-5/10", partial.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assertions.assertEquals("2345", partial.getContentAsString());
+
+        MockHttpServletResponse suffix = get(receipt, "bytes=-3");
+        Assertions.assertEquals("789", suffix.getContentAsString());
+
+        Assertions.assertEquals(416, get(receipt, "bytes=20-").getStatus());
+    }
+
+    private ReceiptEntity store(String name, String contentType, byte[] content) throws IOException {
+        return receiptService.storeReceipt(recordId, name,
+                new MockMultipartFile("receipt", name, contentType, content)).orElseThrow();
+    }
+
+    private MockHttpServletResponse get(ReceiptEntity receipt, String range) throws Exception {
+        MockHttpServletRequestBuilder request =
+                MockMvcRequestBuilders.get("/records/{id}/receipts/{receiptId}", recordId, receipt.getId());
+        if (range != null)
+            request.header(HttpHeaders.RANGE, range);
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+}
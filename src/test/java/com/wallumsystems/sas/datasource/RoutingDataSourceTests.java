@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.Cookie;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// two in-memory H2 databases stand in for the primary and the replica, each knows its own name
+class RoutingDataSourceTests {
+
+    private SimpleDriverDataSource primary;
+
+    private SimpleDriverDataSource replica;
+
+    private RoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        routingDataSource = new RoutingDataSource(primary, List.of(replica));
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RoutingContext.clear();
+        new JdbcTemplate(primary).execute("drop all objects");
+        new JdbcTemplate(replica).execute("drop all objects");
+    }
+
+    @Test
+    void readOnlyTransactionsOfAllowedThreadsGoToTheReplica() {
+        RoutingContext.allowReplica();
+        Assertions.assertEquals("replica", currentDatabase(true));
+        Assertions.assertEquals("primary", currentDatabase(false));
+    }
+
+    @Test
+    void threadsThatDidNotOptInStayOnThePrimary() {
+        Assertions.assertEquals("primary", currentDatabase(true));
+        Assertions.assertEquals("primary", currentDatabase(false));
+    }
+
+    @Test
+    void propagatedTasksKeepTheRoutingOfTheSubmitter() throws Exception {
+        RoutingContext.allowReplica();
+        String[] database = new String[1];
+        Thread thread = new Thread(RoutingContext.propagate(() -> database[0] = currentDatabase(true)));
+        thread.start();
+        thread.join();
+        Assertions.assertEquals("replica", database[0]);
+    }
+
+    @Test
+    void readsAfterAWriteStayOnThePrimaryWithinTheWindow() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+        MockHttpServletResponse postResponse = new MockHttpServletResponse();
+        AtomicBoolean replicaAllowedForPost = new AtomicBoolean(true);
+        filter.doFilter(new MockHttpServletRequest("POST", "/records"), postResponse,
+                (request, response) -> replicaAllowedForPost.set(RoutingContext.isReplicaAllowed()));
+        Assertions.assertFalse(replicaAllowedForPost.get());
+        Cookie cookie = postResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        Assertions.assertNotNull(cookie);
+
+        MockHttpServletRequest pinnedRequest = new MockHttpServletRequest("GET", "/records");
+        pinnedRequest.setCookies(cookie);
+        AtomicBoolean replicaAllowedWithCookie = new AtomicBoolean(true);
+        filter.doFilter(pinnedRequest, new MockHttpServletResponse(),
+                (request, response) -> replicaAllowedWithCookie.set(RoutingContext.isReplicaAllowed()));
+        Assertions.assertFalse(replicaAllowedWithCookie.get());
+
+        MockHttpServletRequest expiredRequest = new MockHttpServletRequest("GET", "/records");
+        expiredRequest.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1)));
+        AtomicBoolean replicaAllowedAfterWindow = new AtomicBoolean(false);
+        filter.doFilter(expiredRequest, new MockHttpServletResponse(),
+                (request, response) -> replicaAllowedAfterWindow.set(RoutingContext.isReplicaAllowed()));
+        Assertions.assertTrue(replicaAllowedAfterWindow.get());
+        Assertions.assertFalse(RoutingContext.isReplicaAllowed(), "The context must not leak out of the request");
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select name from database_name", String.class));
+    }
+
+    private static SimpleDriverDataSource database(String name) {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new org.h2.Driver(),
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table database_name (name varchar(16))");
+        jdbcTemplate.update("insert into database_name values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallumsystems.sas.controller.RecordFeedController;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.event.RecordsPostedEvent;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.EntityToComponentConverter;
+import com.wallumsystems.sas.swagger.model.NewRecord;
+import com.wallumsystems.sas.swagger.model.NoDateBaseRecord;
+import com.wallumsystems.sas.swagger.model.Record;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+class RecordFeedTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AccountCache accountCache = Mockito.mock(AccountCache.class);
+
+    private final EntityToComponentConverter entityToComponentConverter = new EntityToComponentConverter(accountCache);
+
+    private RecordFeed recordFeed;
+
+    private MockMvc mockMvc;
+
+    private long nextId = 1;
+
+    @AfterEach
+    void tearDown() {
+        recordFeed.shutdown();
+    }
+
+    @Test
+    void postingWithTaxReachesTheFeed() throws Exception {
+        start(100, Duration.ofHours(1));
+        MockHttpServletResponse subscriber = subscribe(null);
+        Mockito.when(accountCache.findById(Mockito.anyLong()))
+                .thenAnswer(invocation -> Optional.of(account(invocation.getArgument(0))));
+        RecordEntity recordEntity = entityToComponentConverter.newRecordToRecordEntity(new NewRecord()
+                .fromAccountId(1)
+                .toAccountId(2)
+                .amount(new BigDecimal("100.00"))
+                .bookingDate(LocalDate.of(2022, 1, 31))
+                .taxRecord(new NoDateBaseRecord().fromAccountId(2).toAccountId(3).amount(new BigDecimal("19.00"))));
+        persisted(recordEntity);
+        persisted(recordEntity.getTaxRecord());
+
+        recordFeed.onRecordsPosted(new RecordsPostedEvent(List.of(recordEntity, recordEntity.getTaxRecord())));
+
+        List<Record> records = awaitRecords(subscriber, 2);
+        Assertions.assertEquals(recordEntity.getTaxRecord().getId().intValue(), records.get(0).getTaxRecord());
+        Assertions.assertEquals(recordEntity.getId().intValue(), records.get(1).getTaxedRecord());
+    }
+
+    @Test
+    void reconnectingSubscriberGetsTheEventsAfterItsLastEventId() throws Exception {
+        start(100, Duration.ofHours(1));
+        MockHttpServletResponse first = subscribe(null);
+        for (int i = 0; i < 3; i++)
+            recordFeed.onRecordsPosted(new RecordsPostedEvent(List.of(persisted(record()))));
+        List<String> ids = await(first, events -> events.size() == 3).stream().map(SentEvent::id).toList();
+
+        List<SentEvent> replayed = await(subscribe(ids.get(0)), events -> events.size() == 2);
+        Assertions.assertEquals(ids.subList(1, 3), replayed.stream().map(SentEvent::id).toList());
+
+        // an id of an earlier run can not be resumed, the client is told to reload instead
+        List<SentEvent> reset = await(subscribe("0-1"), events -> events.size() == 1);
+        Assertions.assertEquals(FeedEvent.RESET, reset.get(0).name());
+        Assertions.assertEquals(ids.get(2), reset.get(0).id());
+    }
+
+    @Test
+    void subscriberThatFallsBehindItsQueueIsDropped() throws Exception {
+        start(2, Duration.ofHours(1));
+        subscribe(null);
+        Assertions.assertEquals(1, meterRegistry.get("sas.feed.subscribers").gauge().value());
+
+        // a single commit with more records than the queue holds overflows it before the dispatcher can drain
+        recordFeed.onRecordsPosted(new RecordsPostedEvent(List.of(persisted(record()), persisted(record()), persisted(record()))));
+
+        Assertions.assertEquals(1, meterRegistry.get("sas.feed.dropped").counter().count());
+        Assertions.assertEquals(0, meterRegistry.get("sas.feed.subscribers").gauge().value());
+    }
+
+    @Test
+    void idleSubscribersGetHeartbeats() throws Exception {
+        start(100, Duration.ofMillis(20));
+        MockHttpServletResponse subscriber = subscribe(null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!subscriber.getContentAsString().contains(":heartbeat") && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(subscriber.getContentAsString().contains(":heartbeat"), "No heartbeat was sent");
+    }
+
+    private void start(int subscriberQueueCapacity, Duration heartbeatInterval) {
+        recordFeed = new RecordFeed(entityToComponentConverter, objectMapper, meterRegistry,
+                10, subscriberQueueCapacity, 1, Duration.ofHours(1), heartbeatInterval);
+        mockMvc = MockMvcBuilders.standaloneSetup(new RecordFeedController(recordFeed)).build();
+    }
+
+    private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/records/feed");
+        if (lastEventId != null)
+            request.header("Last-Event-ID", lastEventId);
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+
+    private List<Record> awaitRecords(MockHttpServletResponse response, int count) throws Exception {
+        List<Record> records = new ArrayList<>();
+        for (SentEvent event : await(response, events -> events.size() == count))
+            records.add(objectMapper.readValue(event.data(), Record.class));
+        return records;
+    }
+
+    // the dispatcher writes asynchronously, so the stream is read until it holds the expected events
+    private static List<SentEvent> await(MockHttpServletResponse response, Predicate<List<SentEvent>> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<SentEvent> events = parse(response.getContentAsString());
+        while (!condition.test(events) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            events = parse(response.getContentAsString());
+        }
+        Assertions.assertTrue(condition.test(events), "Unexpected events " + events);
+        return events;
+    }
+
+    private static List<SentEvent> parse(String stream) {
+        List<SentEvent> events = new ArrayList<>();
+        // an event is written in parts, only the ones followed by their blank line are complete
+        for (String block : stream.substring(0, Math.max(stream.lastIndexOf("\n\n"), 0)).split("\n\n")) {
+            String id = null, name = null, data = null;
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:"))
+                    id = line.substring(3);
+                else if (line.startsWith("event:"))
+                    name = line.substring(6);
+                else if (line.startsWith("data:"))
+                    data = line.substring(5);
+            }
+            if (id != null)
+                events.add(new SentEvent(id, name, data));
+        }
+        return events;
+    }
+
+    private RecordEntity record() {
+        return RecordEntity.builder()
+                .fromAccountEntity(account(1L))
+                .toAccountEntity(account(2L))
+                .value(10000L)
+                .bookingDate(java.sql.Date.valueOf(LocalDate.of(2022, 1, 31)))
+                .build();
+    }
+
+    // the feed only sees records after their commit, so they carry an id and a creation time
+    private RecordEntity persisted(RecordEntity recordEntity) {
+        ReflectionTestUtils.setField(recordEntity, "id", nextId++);
+        recordEntity.setCreationTime(new Timestamp(System.currentTimeMillis()));
+        return recordEntity;
+    }
+
+    private static AccountEntity account(Long id) {
+        return AccountEntity.builder().id(id).name("account " + id).build();
+    }
+
+    private record SentEvent(String id, String name, String data) {
+    }
+}
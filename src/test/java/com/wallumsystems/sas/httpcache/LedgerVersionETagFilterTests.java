@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.httpcache;
+
+import com.wallumsystems.sas.repository.LedgerVersionRepository;
+import com.wallumsystems.sas.service.LedgerVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.servlet.FilterChain;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+class LedgerVersionETagFilterTests {
+
+    // the row every instance reads the version from
+    private final AtomicLong storedVersion = new AtomicLong();
+
+    private final LedgerVersionRepository ledgerVersionRepository = Mockito.mock(LedgerVersionRepository.class);
+
+    private final LedgerVersion ledgerVersion =
+            new LedgerVersion(ledgerVersionRepository, Mockito.mock(JdbcTemplate.class), Mockito.mock(PlatformTransactionManager.class));
+
+    private final AtomicInteger handlerCalls = new AtomicInteger();
+
+    private LedgerVersionETagFilter filter;
+
+    private final FilterChain handler = (request, response) -> {
+        handlerCalls.incrementAndGet();
+        response.setContentType("application/json");
+        response.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+    };
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(ledgerVersionRepository.findVersion()).thenAnswer(invocation -> storedVersion.get());
+        filter = new LedgerVersionETagFilter(ledgerVersion, new SimpleMeterRegistry(), List.of("/records"),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), Duration.ZERO, true, DataSize.ofBytes(1));
+    }
+
+    @Test
+    void unchangedLedgerIsAnsweredWithoutTheHandler() throws Exception {
+        MockHttpServletResponse first = get(null);
+        Assertions.assertEquals(200, first.getStatus());
+        Assertions.assertEquals("[]", first.getContentAsString());
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(eTag);
+
+        MockHttpServletResponse revalidated = get(eTag);
+        Assertions.assertEquals(304, revalidated.getStatus());
+        Assertions.assertEquals(0, revalidated.getContentLength());
+
+        MockHttpServletResponse cached = get(null);
+        Assertions.assertEquals(200, cached.getStatus());
+        Assertions.assertEquals("[]", cached.getContentAsString());
+        Assertions.assertEquals(eTag, cached.getHeader(HttpHeaders.ETAG));
+
+        Assertions.assertEquals(1, handlerCalls.get());
+    }
+
+    @Test
+    void newVersionInvalidatesTagsAndBodies() throws Exception {
+        String eTag = get(null).getHeader(HttpHeaders.ETAG);
+        // committed through another instance
+        storedVersion.incrementAndGet();
+
+        MockHttpServletResponse response = get(eTag);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertNotEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(2, handlerCalls.get());
+    }
+
+    @Test
+    void encodingsAreSeparateRepresentations() throws Exception {
+        MockHttpServletResponse identity = get(null);
+        MockHttpServletResponse compressed = get(null, "gzip, deflate");
+        Assertions.assertEquals("gzip", compressed.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertNotEquals(identity.getHeader(HttpHeaders.ETAG), compressed.getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed.getContentAsByteArray()))) {
+            Assertions.assertEquals("[]", new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        Assertions.assertNull(get(null, "gzip;q=0").getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private MockHttpServletResponse get(String ifNoneMatch) throws Exception {
+        return get(ifNoneMatch, null);
+    }
+
+    private MockHttpServletResponse get(String ifNoneMatch, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/records");
+        if (ifNoneMatch != null)
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        if (acceptEncoding != null)
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, handler);
+        return response;
+    }
+}
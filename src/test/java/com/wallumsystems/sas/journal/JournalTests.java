@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.journal;
+
+import com.wallumsystems.sas.component.BulkRevertResult;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.repository.JournalCheckpointRepository;
+import com.wallumsystems.sas.service.AccountCache;
+import com.wallumsystems.sas.service.RecordService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class JournalTests {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void acknowledgedEventsSurviveACrash() throws Exception {
+        // the first journal is never closed, like a process that has been killed
+        Journal crashedJournal = new Journal(directory, SEGMENT_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> acknowledged = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long index = i;
+            acknowledged.add(executor.submit(() -> crashedJournal.append(JournalCodec.encode(postRecord(index))).get()));
+        }
+        List<Long> acknowledgedSequences = new ArrayList<>();
+        for (Future<Long> future : acknowledged)
+            acknowledgedSequences.add(future.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        try (Journal recoveredJournal = new Journal(directory, SEGMENT_SIZE)) {
+            List<JournalRecord> journalRecords = readAll(recoveredJournal, 0);
+            Assertions.assertEquals(acknowledgedSequences.size(), journalRecords.size());
+            for (int i = 0; i < journalRecords.size(); i++)
+                Assertions.assertEquals(i + 1, journalRecords.get(i).sequence(), "Sequences have to be gapless");
+            Assertions.assertTrue(acknowledgedSequences.containsAll(journalRecords.stream().map(JournalRecord::sequence).toList()));
+            Assertions.assertTrue(recoveredJournal.segments().size() > 1, "The events should span several segments");
+        }
+    }
+
+    @Test
+    void tornFrameAtTheEndIsDiscarded() throws Exception {
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE)) {
+            for (int i = 0; i < 3; i++)
+                journal.append(JournalCodec.encode(postRecord(i))).get();
+        }
+        // a frame whose payload never reached the disk
+        Path segmentFile = directory.resolve("segment-00000000000000000001.log");
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int end = endOfFrames(channel);
+            channel.write(ByteBuffer.allocate(Journal.FRAME_HEADER_SIZE).putInt(100).putInt(42).putLong(4).flip(), end);
+        }
+
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE)) {
+            Assertions.assertEquals(3, readAll(journal, 0).size());
+            Assertions.assertEquals(4, journal.append(JournalCodec.encode(new JournalEvent.RevertRecord(7))).get());
+            List<JournalRecord> journalRecords = readAll(journal, 0);
+            Assertions.assertEquals(4, journalRecords.size());
+            Assertions.assertEquals(new JournalEvent.RevertRecord(7), JournalCodec.decode(journalRecords.get(3).payload()));
+        }
+    }
+
+    @Test
+    void projectorReplaysEverythingAfterTheCheckpoint() throws Exception {
+        JournalProjection journalProjection = Mockito.mock(JournalProjection.class);
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE)) {
+            CompletableFuture<Long> lastAppend = null;
+            for (int i = 0; i < 10; i++)
+                lastAppend = journal.append(JournalCodec.encode(postRecord(i)));
+            lastAppend.get();
+            Mockito.when(journalProjection.appliedSequence()).thenReturn(6L);
+            Mockito.doThrow(new IllegalStateException("database unavailable"))
+                    .doNothing()
+                    .when(journalProjection).apply(Mockito.anyList());
+
+            JournalProjector journalProjector = new JournalProjector(journal, journalProjection, 100, Duration.ZERO);
+            Assertions.assertThrows(IllegalStateException.class, journalProjector::projectPending);
+            Assertions.assertEquals(10, journalProjector.projectPending());
+        }
+
+        // the failed batch is applied again from the checkpoint, nothing is skipped
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<JournalRecord>> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(journalProjection, Mockito.times(2)).apply(batches.capture());
+        for (List<JournalRecord> batch : batches.getAllValues())
+            Assertions.assertEquals(List.of(7L, 8L, 9L, 10L), batch.stream().map(JournalRecord::sequence).toList());
+    }
+
+    @Test
+    void eventsThatCanNotBeAppliedAreCounted() {
+        RecordService recordService = Mockito.mock(RecordService.class);
+        AccountCache accountCache = Mockito.mock(AccountCache.class);
+        JournalCheckpointRepository journalCheckpointRepository = Mockito.mock(JournalCheckpointRepository.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Mockito.when(accountCache.findById(1L)).thenReturn(Optional.of(AccountEntity.builder().id(1L).build()));
+        Mockito.when(accountCache.findById(2L)).thenReturn(Optional.empty());
+        Mockito.when(recordService.revertRecords(List.of(7L, 8L)))
+                .thenReturn(List.of(BulkRevertResult.notFound(7L), BulkRevertResult.reverted(8L, 9L)));
+        JournalProjection journalProjection =
+                new JournalProjection(recordService, accountCache, journalCheckpointRepository, meterRegistry);
+        Assertions.assertEquals(0, skipped(meterRegistry, "NOT_FOUND"));
+
+        journalProjection.apply(List.of(
+                new JournalRecord(1, JournalCodec.encode(postRecord(0))),
+                new JournalRecord(2, JournalCodec.encode(new JournalEvent.RevertRecord(7L))),
+                new JournalRecord(3, JournalCodec.encode(new JournalEvent.RevertRecord(8L)))));
+
+        // the journal keeps moving, the skipped events show up in the metrics
+        Mockito.verify(recordService, Mockito.never()).postRecords(Mockito.anyList());
+        Mockito.verify(journalCheckpointRepository).setAppliedSequence(3);
+        Assertions.assertEquals(1, skipped(meterRegistry, "UNKNOWN_ACCOUNT"));
+        Assertions.assertEquals(1, skipped(meterRegistry, "NOT_FOUND"));
+        Assertions.assertEquals(0, skipped(meterRegistry, "ALREADY_REVERTED"));
+    }
+
+    @Test
+    void codecRoundTrip() {
+        JournalEvent.PostRecord postRecord = new JournalEvent.PostRecord(LocalDate.of(2022, 1, 31),
+                new JournalEvent.Posting(1, 2, 11900, "Invoice ä"),
+                new JournalEvent.Posting(2, 3, 1900, null));
+        Assertions.assertEquals(postRecord, JournalCodec.decode(JournalCodec.encode(postRecord)));
+    }
+
+    private static JournalEvent.PostRecord postRecord(long index) {
+        return new JournalEvent.PostRecord(LocalDate.of(2022, 1, 31),
+                new JournalEvent.Posting(1, 2, 10000 + index, "Invoice " + index), null);
+    }
+
+    private static double skipped(SimpleMeterRegistry meterRegistry, String reason) {
+        return meterRegistry.get("sas.journal.skipped").tag("reason", reason).counter().count();
+    }
+
+    private static List<JournalRecord> readAll(Journal journal, long afterSequence) throws IOException {
+        JournalCursor cursor = journal.openCursor(afterSequence);
+        List<JournalRecord> journalRecords = new ArrayList<>();
+        List<JournalRecord> batch;
+        while (!(batch = cursor.next(64)).isEmpty())
+            journalRecords.addAll(batch);
+        return journalRecords;
+    }
+
+    private static int endOfFrames(FileChannel channel) throws IOException {
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_SIZE);
+        channel.read(segment, 0);
+        segment.flip();
+        while (Journal.readFrame(segment) != null) ;
+        return segment.position();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.monitoring;
+
+import com.wallumsystems.sas.delegates.PingDelegate;
+import com.wallumsystems.sas.swagger.api.PingApiDelegate;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class DelegateTimingAspectTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DelegateTimingAspect delegateTimingAspect = new DelegateTimingAspect(meterRegistry);
+
+    @Test
+    void callsAreTimedPerDelegateMethodAndOutcome() {
+        PingApiDelegate pingDelegate = proxy(new PingDelegate());
+        pingDelegate.getPing();
+        pingDelegate.getPing();
+
+        Timer timer = meterRegistry.get("sas.delegate")
+                .tag("delegate", "PingDelegate")
+                .tag("method", "getPing")
+                .tag("outcome", "SUCCESSFUL")
+                .timer();
+        Assertions.assertEquals(2, timer.count());
+        Assertions.assertEquals(1, meterRegistry.getMeters().size());
+    }
+
+    @Test
+    void failuresAreTaggedWithTheirOutcome() {
+        PingApiDelegate unavailable = proxy(new UnavailablePingDelegate());
+        unavailable.getPing();
+        PingApiDelegate failing = proxy(new FailingPingDelegate());
+        Assertions.assertThrows(IllegalStateException.class, failing::getPing);
+
+        Assertions.assertEquals(1, meterRegistry.get("sas.delegate")
+                .tag("delegate", "UnavailablePingDelegate")
+                .tag("outcome", "SERVER_ERROR")
+                .timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("sas.delegate")
+                .tag("delegate", "FailingPingDelegate")
+                .tag("outcome", "EXCEPTION")
+                .timer().count());
+    }
+
+    // class based like the proxies of the application, so the implementation names the delegate
+    private PingApiDelegate proxy(PingApiDelegate target) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(delegateTimingAspect);
+        return proxyFactory.getProxy();
+    }
+
+    static class UnavailablePingDelegate implements PingApiDelegate {
+        @Override
+        public ResponseEntity<Void> getPing() {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    static class FailingPingDelegate implements PingApiDelegate {
+        @Override
+        public ResponseEntity<Void> getPing() {
+            throw new IllegalStateException("ping failed");
+        }
+    }
+}
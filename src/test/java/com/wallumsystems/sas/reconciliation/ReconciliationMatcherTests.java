@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reconciliation;
+
+import com.wallumsystems.sas.util.TextTokens;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+class ReconciliationMatcherTests {
+
+    private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+    private final CandidateIndex index = new CandidateIndex(List.of(
+            entry(1, -120_00, LocalDate.of(2022, 3, 1), "Rent office March"),
+            entry(2, -120_00, LocalDate.of(2022, 4, 1), "Rent office April"),
+            entry(3, 49_90, LocalDate.of(2022, 3, 3), "Invoice 2022-17 Müller GmbH"),
+            entry(4, 49_90, LocalDate.of(2022, 3, 4), "Invoice 2022-18 Schmidt"),
+            entry(5, -15_00, LocalDate.of(2022, 3, 10), "Office supplies")));
+
+    @AfterEach
+    void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    void exactAmountsMatchWithinTheDateWindow() {
+        ReconciliationMatcher matcher = matcher(0, 3);
+        ReconciliationMatcher.Candidate[][] candidates = matcher.match(forkJoinPool, index, List.of(
+                line(-120_00, LocalDate.of(2022, 3, 2), "DAUERAUFTRAG Rent"),
+                line(-120_00, LocalDate.of(2022, 3, 20), "DAUERAUFTRAG Rent"),
+                line(120_00, LocalDate.of(2022, 3, 1), "Rent")));
+        Assertions.assertEquals(List.of(1L), ids(candidates[0]));
+        Assertions.assertEquals(List.of(), ids(candidates[1]));
+        // the sign tells incoming from outgoing money
+        Assertions.assertEquals(List.of(), ids(candidates[2]));
+    }
+
+    @Test
+    void descriptionDecidesBetweenEqualAmounts() {
+        ReconciliationMatcher matcher = matcher(0, 3);
+        ReconciliationMatcher.Candidate[][] candidates = matcher.match(forkJoinPool, index, List.of(
+                line(49_90, LocalDate.of(2022, 3, 4), "SEPA Gutschrift Muller GmbH Invoice 2022-17")));
+        Assertions.assertEquals(List.of(3L, 4L), ids(candidates[0]));
+        Assertions.assertTrue(candidates[0][0].confidence() > candidates[0][1].confidence());
+    }
+
+    @Test
+    void amountToleranceWidensTheCandidates() {
+        List<ReconciliationMatcher.Line> lines = List.of(line(-14_50, LocalDate.of(2022, 3, 10), "Office supplies"));
+        Assertions.assertEquals(List.of(), ids(matcher(0, 3).match(forkJoinPool, index, lines)[0]));
+        Assertions.assertEquals(List.of(5L), ids(matcher(1_00, 3).match(forkJoinPool, index, lines)[0]));
+    }
+
+    @Test
+    void everyRecordIsAssignedToOneLineAtMost() {
+        ReconciliationMatcher matcher = matcher(0, 3);
+        ReconciliationMatcher.Candidate[][] candidates = matcher.match(forkJoinPool, index, List.of(
+                line(49_90, LocalDate.of(2022, 3, 3), "Payment"),
+                line(49_90, LocalDate.of(2022, 3, 4), "Schmidt invoice 2022-18"),
+                line(49_90, LocalDate.of(2022, 3, 4), "Payment")));
+        ReconciliationMatcher.Candidate[] assigned = ReconciliationMatcher.assign(candidates);
+        Assertions.assertEquals(4L, index.ids[assigned[1].position()]);
+        Assertions.assertEquals(3L, index.ids[assigned[0].position()]);
+        Assertions.assertNull(assigned[2]);
+    }
+
+    @Test
+    void manyLinesAreMatchedInParallel() {
+        List<ReconciliationMatcher.Line> lines = IntStream.range(0, 10_000)
+                .mapToObj(i -> line(i % 2 == 0 ? -120_00 : 49_90, LocalDate.of(2022, 3, 2), ""))
+                .toList();
+        ReconciliationMatcher.Candidate[][] candidates = matcher(0, 3).match(forkJoinPool, index, lines);
+        for (int i = 0; i < lines.size(); i++)
+            Assertions.assertEquals(i % 2 == 0 ? List.of(1L) : List.of(3L, 4L), ids(candidates[i]));
+    }
+
+    private ReconciliationMatcher matcher(long amountTolerance, int dateWindow) {
+        return new ReconciliationMatcher(amountTolerance, dateWindow, 0.5, 0.25, 0.25, 0.5, 3);
+    }
+
+    private List<Long> ids(ReconciliationMatcher.Candidate[] candidates) {
+        return Arrays.stream(candidates).map(candidate -> index.ids[candidate.position()]).toList();
+    }
+
+    private static CandidateIndex.Entry entry(long id, long amount, LocalDate bookingDate, String description) {
+        return new CandidateIndex.Entry(id, amount, (int) bookingDate.toEpochDay(), description);
+    }
+
+    private static ReconciliationMatcher.Line line(long amount, LocalDate bookingDate, String text) {
+        return new ReconciliationMatcher.Line(amount, (int) bookingDate.toEpochDay(),
+                new HashSet<>(TextTokens.tokenize(text)));
+    }
+}
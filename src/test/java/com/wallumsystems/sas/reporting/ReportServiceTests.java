@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.reporting;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.component.AccountMovement;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
+import com.wallumsystems.sas.exception.LedgerNotLoadedException;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.RecordRepository;
+import com.wallumsystems.sas.util.MinorUnits;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// the ledger is loaded by a thread of its own, so the records have to be committed
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportServiceTests {
+
+    private static final LocalDate FIRST_BOOKING_DATE = LocalDate.of(2021, 1, 1);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LedgerEngine ledgerEngine;
+
+    private ReportService reportService;
+
+    @BeforeEach
+    void loadLedger() throws InterruptedException {
+        Random random = new Random(42);
+        List<AccountEntity> accounts = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            accounts.add(AccountEntity.builder().name("account " + i).build());
+        accountRepository.saveAll(accounts);
+        List<RecordEntity> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int from = random.nextInt(accounts.size());
+            int to = (from + 1 + random.nextInt(accounts.size() - 1)) % accounts.size();
+            records.add(RecordEntity.builder()
+                    .fromAccountEntity(accounts.get(from))
+                    .toAccountEntity(accounts.get(to))
+                    .value(random.nextInt(1_000_000) - 100_000L)
+                    .bookingDate(Date.valueOf(FIRST_BOOKING_DATE.plusDays(random.nextInt(3 * 365))))
+                    .build());
+        }
+        // templates of recurring records are not booked, the reports have to skip them
+        for (int i = 0; i < 10; i++)
+            records.add(RecurringRecordEntity.builder()
+                    .fromAccountEntity(accounts.get(i % accounts.size()))
+                    .toAccountEntity(accounts.get((i + 1) % accounts.size()))
+                    .value(7_000_000L)
+                    .bookingDate(Date.valueOf(FIRST_BOOKING_DATE.plusDays(100L * i)))
+                    .startDate(Date.valueOf(FIRST_BOOKING_DATE.plusDays(100L * i)))
+                    .build());
+        recordRepository.saveAll(records);
+
+        ledgerEngine = new LedgerEngine(recordRepository, transactionManager, true, 16);
+        ledgerEngine.startLoading();
+        reportService = new ReportService(ledgerEngine, 4);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!loaded() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(loaded(), "The ledger was not loaded");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportService.shutdown();
+        recordRepository.deleteAllInBatch();
+        accountRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void trialBalanceMatchesTheSqlSums() throws Exception {
+        LocalDate asOf = FIRST_BOOKING_DATE.plusDays(500);
+        Map<Long, long[]> expected = sqlTotals("booking_date <= ?", Date.valueOf(asOf));
+
+        List<AccountBalance> trialBalance = reportService.getTrialBalance(asOf);
+
+        Assertions.assertEquals(expected.size(), trialBalance.size());
+        for (AccountBalance balance : trialBalance) {
+            long[] totals = expected.get(balance.accountId().longValue());
+            Assertions.assertEquals(MinorUnits.toBigDecimal(totals[0]), balance.incoming());
+            Assertions.assertEquals(MinorUnits.toBigDecimal(totals[1]), balance.outgoing());
+        }
+    }
+
+    @Test
+    void movementsMatchTheSqlSumsOfEveryMonth() throws Exception {
+        YearMonth from = YearMonth.of(2021, 11);
+        YearMonth to = YearMonth.of(2023, 2);
+
+        List<AccountMovement> movements = reportService.getMovements(from, to);
+
+        int compared = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            Map<Long, long[]> expected = sqlTotals("booking_date >= ? and booking_date <= ?",
+                    Date.valueOf(month.atDay(1)), Date.valueOf(month.atEndOfMonth()));
+            YearMonth period = month;
+            List<AccountMovement> monthMovements = movements.stream()
+                    .filter(movement -> movement.period().equals(period))
+                    .toList();
+            Assertions.assertEquals(expected.size(), monthMovements.size(), "Accounts moved in " + month);
+            for (AccountMovement movement : monthMovements) {
+                long[] totals = expected.get(movement.accountId().longValue());
+                Assertions.assertEquals(MinorUnits.toBigDecimal(totals[0]), movement.incoming());
+                Assertions.assertEquals(MinorUnits.toBigDecimal(totals[1]), movement.outgoing());
+                compared++;
+            }
+        }
+        Assertions.assertEquals(movements.size(), compared);
+    }
+
+    // many small slices, so the workers have to share their totals arrays between slices
+    @Test
+    void smallSlicesAddUpToTheSameTotals() throws Exception {
+        Ledger ledger = ledgerEngine.getLedger();
+        int firstMonth = 2021 * 12;
+        int lastMonth = 2023 * 12 + 11;
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            WorkerTotals sliced = new WorkerTotals(2 * ledger.accountCount * (lastMonth - firstMonth + 1));
+            forkJoinPool.invoke(new AccountPeriodTotalsTask(ledger, 0, ledger.size, firstMonth, lastMonth, 7, sliced));
+            WorkerTotals whole = new WorkerTotals(2 * ledger.accountCount * (lastMonth - firstMonth + 1));
+            new AccountPeriodTotalsTask(ledger, 0, ledger.size, firstMonth, lastMonth, ledger.size, whole).invoke();
+            Assertions.assertArrayEquals(whole.sum(), sliced.sum());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private boolean loaded() {
+        try {
+            ledgerEngine.getLedger();
+            return true;
+        } catch (LedgerNotLoadedException e) {
+            return false;
+        }
+    }
+
+    // incoming and outgoing total per account id
+    private Map<Long, long[]> sqlTotals(String condition, Object... arguments) {
+        Map<Long, long[]> totals = new HashMap<>();
+        jdbcTemplate.query("select to_account_id, sum(value) from record where record_type <> 'RECURRING' and " + condition + " group by to_account_id",
+                resultSet -> {
+                    totals.computeIfAbsent(resultSet.getLong(1), id -> new long[2])[0] = resultSet.getLong(2);
+                }, arguments);
+        jdbcTemplate.query("select from_account_id, sum(value) from record where record_type <> 'RECURRING' and " + condition + " group by from_account_id",
+                resultSet -> {
+                    totals.computeIfAbsent(resultSet.getLong(1), id -> new long[2])[1] = resultSet.getLong(2);
+                }, arguments);
+        return totals;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+// needs an empty scratch schema of a local MariaDB, e.g.
+// SAS_TEST_MARIADB_URL=jdbc:mariadb://localhost:3306/sas-plan-test SAS_TEST_MARIADB_USER=root SAS_TEST_MARIADB_PASSWORD=password
+@EnabledIfEnvironmentVariable(named = "SAS_TEST_MARIADB_URL", matches = ".+")
+class RecordQueryPlanTests {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+
+    private static final int ACCOUNT_COUNT = 50;
+
+    private static final int RECORD_COUNT = 20_000;
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        String url = System.getenv("SAS_TEST_MARIADB_URL");
+        String user = System.getenv().getOrDefault("SAS_TEST_MARIADB_USER", "root");
+        String password = System.getenv().getOrDefault("SAS_TEST_MARIADB_PASSWORD", "");
+        Flyway.configure().dataSource(url, user, password).load().migrate();
+        connection = DriverManager.getConnection(url, user, password);
+        try (PreparedStatement insertAccount = connection.prepareStatement("insert into account (id, name) values (?, ?)")) {
+            for (int i = 0; i < ACCOUNT_COUNT; i++) {
+                insertAccount.setLong(1, FIRST_ID + i);
+                insertAccount.setString(2, "plan test " + i);
+                insertAccount.addBatch();
+            }
+            insertAccount.executeBatch();
+        }
+        try (PreparedStatement insertRecord = connection.prepareStatement("insert into record " +
+                "(id, record_type, booking_date, creation_time, value, from_account_id, to_account_id) " +
+                "values (?, 'RECORD', ?, ?, ?, ?, ?)")) {
+            Timestamp creationTime = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                insertRecord.setLong(1, FIRST_ID + i);
+                insertRecord.setDate(2, Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i % 1000)));
+                insertRecord.setTimestamp(3, creationTime);
+                insertRecord.setLong(4, 10000);
+                insertRecord.setLong(5, FIRST_ID + i % ACCOUNT_COUNT);
+                insertRecord.setLong(6, FIRST_ID + (i + 1) % ACCOUNT_COUNT);
+                insertRecord.addBatch();
+            }
+            insertRecord.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze table record");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        if (connection == null)
+            return;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("delete from record where id >= " + FIRST_ID);
+            statement.execute("delete from account where id >= " + FIRST_ID);
+        }
+        connection.close();
+    }
+
+    @Test
+    void outgoingSideSeeksOnTheFromAccountIndex() throws SQLException {
+        assertSeek("idx_record_from_account_booking_date", "select r.id from record r " +
+                "where r.from_account_id = " + (FIRST_ID + 7) + " and r.booking_date >= '2020-03-01' and r.booking_date <= '2020-06-30' " +
+                "order by r.booking_date, r.id limit 101");
+    }
+
+    @Test
+    void incomingSideSeeksOnTheToAccountIndex() throws SQLException {
+        assertSeek("idx_record_to_account_booking_date", "select r.id from record r " +
+                "where r.to_account_id = " + (FIRST_ID + 7) + " and r.booking_date >= '2020-03-01' " +
+                "and (r.booking_date > '2020-03-01' or r.id > " + FIRST_ID + ") " +
+                "order by r.booking_date, r.id limit 101");
+    }
+
+    @Test
+    void unfilteredPageSeeksOnTheBookingDateIndex() throws SQLException {
+        assertSeek("idx_record_booking_date", "select r.id from record r " +
+                "where r.booking_date >= '2021-01-01' and (r.booking_date > '2021-01-01' or r.id > " + FIRST_ID + ") " +
+                "order by r.booking_date, r.id limit 101");
+    }
+
+    private static void assertSeek(String expectedIndex, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery("explain " + sql)) {
+            Assertions.assertTrue(plan.next());
+            String key = plan.getString("key");
+            String extra = plan.getString("Extra");
+            Assertions.assertEquals(expectedIndex, key, "Unexpected plan: " + plan.getString("type") + " / " + extra);
+            Assertions.assertTrue(extra == null || !extra.contains("filesort"), "The order has to come from the index: " + extra);
+        }
+    }
+}
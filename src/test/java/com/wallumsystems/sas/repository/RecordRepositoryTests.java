@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.repository;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
+import com.wallumsystems.sas.entity.RevertingRecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.persistence.EntityManager;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class RecordRepositoryTests {
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void viewListingStatementCountDoesNotGrowWithRowCount() {
+        AccountEntity fromAccount = AccountEntity.builder().name("from").build();
+        AccountEntity toAccount = AccountEntity.builder().name("to").build();
+        entityManager.persist(fromAccount);
+        entityManager.persist(toAccount);
+
+        long statementsForFewRecords = statementsForViewListing(fromAccount, toAccount, 2);
+        long statementsForManyRecords = statementsForViewListing(fromAccount, toAccount, 50);
+
+        Assertions.assertEquals(1, statementsForFewRecords, "Listing needs more than one statement");
+        Assertions.assertEquals(statementsForFewRecords, statementsForManyRecords, "Statement count grows with rows");
+    }
+
+    @Test
+    void viewResolvesTaxAndRevertingReferences() {
+        AccountEntity fromAccount = AccountEntity.builder().name("from").build();
+        AccountEntity toAccount = AccountEntity.builder().name("to").build();
+        entityManager.persist(fromAccount);
+        entityManager.persist(toAccount);
+        RecordEntity recordEntity = persistRevertedRecordWithTax(fromAccount, toAccount);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<RecordView> recordViews = recordRepository.findAllViews();
+        RecordView recordView = find(recordViews, recordEntity.getId());
+        RecordView taxView = find(recordViews, recordView.taxRecordId());
+        RecordView revertingView = find(recordViews, recordView.revertingRecordId());
+
+        Assertions.assertEquals(3, recordViews.size(), "Every record has to be listed exactly once");
+        Assertions.assertEquals(recordEntity.getId(), taxView.taxedRecordId());
+        Assertions.assertEquals(recordEntity.getId(), revertingView.revertedRecordId());
+        Assertions.assertNull(recordView.taxedRecordId());
+        Assertions.assertNull(recordView.revertedRecordId());
+    }
+
+    @Test
+    void bookedRangeLeavesOutRecurringTemplates() {
+        AccountEntity fromAccount = AccountEntity.builder().name("from").build();
+        AccountEntity toAccount = AccountEntity.builder().name("to").build();
+        entityManager.persist(fromAccount);
+        entityManager.persist(toAccount);
+        RecordEntity recordEntity = persistRevertedRecordWithTax(fromAccount, toAccount);
+        Date bookingDate = recordEntity.getBookingDate();
+        persistRecurringTemplate(fromAccount, toAccount, bookingDate);
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<RecordView> recordViews = recordRepository.streamViewsBookedBetween(bookingDate, bookingDate)) {
+            Assertions.assertEquals(List.of(-10000L, 1900L, 10000L), recordViews.map(RecordView::value).sorted().toList());
+        }
+    }
+
+    @Test
+    void searchEntriesLeaveOutRecurringTemplates() {
+        AccountEntity fromAccount = AccountEntity.builder().name("from").build();
+        AccountEntity toAccount = AccountEntity.builder().name("to").build();
+        entityManager.persist(fromAccount);
+        entityManager.persist(toAccount);
+        RecordEntity recordEntity = persistRevertedRecordWithTax(fromAccount, toAccount);
+        RecurringRecordEntity template = persistRecurringTemplate(fromAccount, toAccount, recordEntity.getBookingDate());
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<SearchEntry> searchEntries = recordRepository.streamSearchEntries()) {
+            List<Long> ids = searchEntries.map(SearchEntry::id).toList();
+            Assertions.assertEquals(3, ids.size());
+            Assertions.assertFalse(ids.contains(template.getId()));
+        }
+    }
+
+    private long statementsForViewListing(AccountEntity fromAccount, AccountEntity toAccount, int recordCount) {
+        for (int i = 0; i < recordCount; i++)
+            persistRevertedRecordWithTax(fromAccount, toAccount);
+        entityManager.flush();
+        entityManager.clear();
+        long expectedRows = recordRepository.count();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<RecordView> recordViews = recordRepository.findAllViews();
+        Assertions.assertEquals(expectedRows, recordViews.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private RecordEntity persistRevertedRecordWithTax(AccountEntity fromAccount, AccountEntity toAccount) {
+        Date bookingDate = Date.valueOf(LocalDate.of(2022, 1, 31));
+        TaxRecordEntity taxRecord = TaxRecordEntity.builder()
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(1900L)
+                .bookingDate(bookingDate)
+                .build();
+        RecordEntity recordEntity = RecordEntity.builder()
+                .description("record")
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(10000L)
+                .bookingDate(bookingDate)
+                .taxRecord(taxRecord)
+                .build();
+        taxRecord.setRecordEntity(recordEntity);
+        recordEntity.setRevertingRecord(RevertingRecordEntity.builder()
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(-10000L)
+                .bookingDate(bookingDate)
+                .recordEntity(recordEntity)
+                .build());
+        entityManager.persist(recordEntity);
+        return recordEntity;
+    }
+
+    private RecurringRecordEntity persistRecurringTemplate(AccountEntity fromAccount, AccountEntity toAccount, Date startDate) {
+        RecurringRecordEntity template = RecurringRecordEntity.builder()
+                .description("rent")
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(50000L)
+                .bookingDate(startDate)
+                .startDate(startDate)
+                .build();
+        entityManager.persist(template);
+        return template;
+    }
+
+    private static RecordView find(List<RecordView> recordViews, Long id) {
+        return recordViews.stream()
+                .filter(recordView -> recordView.id().equals(id))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+class SearchIndexTests {
+
+    private final SearchIndex searchIndex = new SearchIndex(2);
+
+    @BeforeEach
+    void setUp() {
+        searchIndex.add(1, "Rent office March", 1, 2, LocalDate.of(2022, 3, 1));
+        searchIndex.add(2, "Office supplies Müller GmbH", 1, 3, LocalDate.of(2022, 3, 5));
+        searchIndex.add(3, "Officers' dinner", 4, 1, LocalDate.of(2022, 4, 2));
+        searchIndex.add(4, "Rent office April", 1, 2, LocalDate.of(2022, 4, 1));
+    }
+
+    @Test
+    void wordsMatchAsPrefixesAndWholeWordsRankFirst() {
+        SearchHits hits = search("offic", null, null, null, 0, 10);
+        Assertions.assertEquals(4, hits.total());
+
+        // "office" is a whole word in 1, 2 and 4 but only a prefix of "officers"
+        hits = search("office", null, null, null, 0, 10);
+        Assertions.assertEquals(List.of(4L, 2L, 1L, 3L), hits.ids());
+    }
+
+    @Test
+    void allWordsHaveToMatch() {
+        Assertions.assertEquals(List.of(4L, 1L), search("rent OFF", null, null, null, 0, 10).ids());
+        Assertions.assertEquals(0, search("rent dinner", null, null, null, 0, 10).total());
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        Assertions.assertEquals(List.of(2L), search("MULLER", null, null, null, 0, 10).ids());
+        Assertions.assertEquals(List.of(2L), search("mül", null, null, null, 0, 10).ids());
+    }
+
+    @Test
+    void filtersAndPagesCombine() {
+        Assertions.assertEquals(List.of(4L, 2L, 1L, 3L), search("office", 1L, null, null, 0, 10).ids());
+        SearchHits hits = search("office", 2L, null, LocalDate.of(2022, 3, 31), 0, 10);
+        Assertions.assertEquals(List.of(1L), hits.ids());
+
+        hits = search("office", null, null, null, 1, 2);
+        Assertions.assertEquals(4, hits.total());
+        Assertions.assertEquals(List.of(2L, 1L), hits.ids());
+    }
+
+    private SearchHits search(String query, Long accountId, LocalDate from, LocalDate until, int offset, int limit) {
+        return searchIndex.search(SearchIndex.tokenize(query), accountId, from, until, offset, limit);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class AccountCacheTests {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AccountRepository countingAccountRepository;
+
+    private AccountCache accountCache;
+
+    @BeforeEach
+    void setUp() {
+        countingAccountRepository = Mockito.mock(AccountRepository.class, AdditionalAnswers.delegatesTo(accountRepository));
+        accountCache = new AccountCache(entityManager, countingAccountRepository, new SimpleMeterRegistry(), 100);
+    }
+
+    @Test
+    void everyPersistenceContextGetsItsOwnAccount() {
+        AccountEntity bank = accountRepository.save(AccountEntity.builder().name("bank").build());
+        entityManager.flush();
+        entityManager.clear();
+
+        AccountEntity first = accountCache.findById(bank.getId()).orElseThrow();
+        Assertions.assertSame(entityManager.find(AccountEntity.class, bank.getId()), first);
+        entityManager.clear();
+
+        AccountEntity second = accountCache.findById(bank.getId()).orElseThrow();
+        Assertions.assertNotSame(first, second);
+        Assertions.assertTrue(entityManager.contains(second));
+        Assertions.assertEquals("bank", second.getName());
+        // the second lookup was answered by the cache
+        Mockito.verify(countingAccountRepository, Mockito.times(1)).findById(bank.getId());
+    }
+
+    @Test
+    void unknownAccountsAreNotCached() {
+        Assertions.assertTrue(accountCache.findById(Long.MAX_VALUE).isEmpty());
+        AccountEntity created = accountRepository.save(AccountEntity.builder().name("created later").build());
+
+        Assertions.assertEquals(created.getId(), accountCache.findById(created.getId()).orElseThrow().getId());
+    }
+
+    @Test
+    void missingAccountsAreLoadedWithOneQuery() {
+        AccountEntity bank = accountRepository.save(AccountEntity.builder().name("bank").build());
+        AccountEntity rent = accountRepository.save(AccountEntity.builder().name("rent").build());
+        entityManager.flush();
+
+        Map<Long, AccountEntity> accounts = accountCache.findAllById(List.of(bank.getId(), rent.getId(), Long.MAX_VALUE));
+
+        Assertions.assertEquals(Map.of(bank.getId(), bank, rent.getId(), rent), accounts);
+        Mockito.verify(countingAccountRepository, Mockito.times(1)).findAllById(ArgumentMatchers.any());
+        Assertions.assertSame(bank, accountCache.findById(bank.getId()).orElseThrow());
+        Mockito.verify(countingAccountRepository, Mockito.never()).findById(ArgumentMatchers.any());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.BalanceSnapshotEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
+import com.wallumsystems.sas.repository.BalanceSnapshotRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(BalanceSnapshotService.class)
+class BalanceSnapshotServiceTests {
+
+    private static final LocalDate JANUARY_END = LocalDate.of(2022, 1, 31);
+
+    private static final LocalDate FEBRUARY_END = LocalDate.of(2022, 2, 28);
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AccountEntity bank;
+
+    private AccountEntity revenue;
+
+    @BeforeEach
+    void bookFirstQuarter() {
+        bank = AccountEntity.builder().name("bank").build();
+        revenue = AccountEntity.builder().name("revenue").build();
+        entityManager.persist(bank);
+        entityManager.persist(revenue);
+        post(LocalDate.of(2022, 1, 15), 10000L);
+        post(LocalDate.of(2022, 2, 15), 2000L);
+        post(LocalDate.of(2022, 3, 15), 300L);
+    }
+
+    @Test
+    void closedPeriodsAreSnapshotOnce() {
+        Assertions.assertEquals(2, balanceSnapshotService.closePeriod(JANUARY_END));
+        Assertions.assertEquals(2, balanceSnapshotService.closePeriod(FEBRUARY_END));
+        // already closed accounts keep their snapshot
+        Assertions.assertEquals(0, balanceSnapshotService.closePeriod(FEBRUARY_END));
+
+        Assertions.assertEquals(10000L, snapshot(bank, JANUARY_END).getIncomingTotal());
+        Assertions.assertEquals(12000L, snapshot(bank, FEBRUARY_END).getIncomingTotal());
+        Assertions.assertEquals(12000L, snapshot(revenue, FEBRUARY_END).getOutgoingTotal());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> balanceSnapshotService.closePeriod(LocalDate.of(2022, 3, 15)));
+    }
+
+    @Test
+    void balancesAsOfADateAddTheRecordsAfterTheSnapshot() {
+        balanceSnapshotService.closePeriod(JANUARY_END);
+        balanceSnapshotService.closePeriod(FEBRUARY_END);
+
+        assertBalance(bank, LocalDate.of(2022, 1, 14), 0L);
+        assertBalance(bank, JANUARY_END, 10000L);
+        assertBalance(bank, LocalDate.of(2022, 3, 20), 12300L);
+        assertBalance(revenue, LocalDate.of(2022, 3, 20), -12300L);
+    }
+
+    @Test
+    void backDatedPostingsMoveTheLaterSnapshots() {
+        balanceSnapshotService.closePeriod(JANUARY_END);
+        balanceSnapshotService.closePeriod(FEBRUARY_END);
+
+        RecordEntity backDated = post(LocalDate.of(2022, 1, 20), 40L);
+        RecordEntity intoFebruary = post(LocalDate.of(2022, 2, 1), 5L);
+        RecordEntity intoOpenPeriod = post(LocalDate.of(2022, 3, 1), 7L);
+        balanceSnapshotService.adjust(List.of(backDated, intoFebruary, intoOpenPeriod));
+        entityManager.clear();
+
+        // nothing is deleted, so the queries keep starting from the latest snapshot
+        Assertions.assertEquals(4, balanceSnapshotRepository.count());
+        Assertions.assertEquals(10040L, snapshot(bank, JANUARY_END).getIncomingTotal());
+        Assertions.assertEquals(12045L, snapshot(bank, FEBRUARY_END).getIncomingTotal());
+        Assertions.assertEquals(12045L, snapshot(revenue, FEBRUARY_END).getOutgoingTotal());
+        assertBalance(bank, JANUARY_END, 10040L);
+        assertBalance(bank, LocalDate.of(2022, 3, 20), 12352L);
+    }
+
+    // only the materialized copies of a recurring record are booked, not the template itself
+    @Test
+    void recurringTemplatesAreNotBooked() {
+        entityManager.persist(RecurringRecordEntity.builder()
+                .fromAccountEntity(revenue)
+                .toAccountEntity(bank)
+                .value(999L)
+                .bookingDate(Date.valueOf(LocalDate.of(2022, 1, 1)))
+                .startDate(Date.valueOf(LocalDate.of(2022, 1, 1)))
+                .build());
+        entityManager.flush();
+        balanceSnapshotService.closePeriod(JANUARY_END);
+
+        Assertions.assertEquals(10000L, snapshot(bank, JANUARY_END).getIncomingTotal());
+        assertBalance(bank, LocalDate.of(2022, 3, 20), 12300L);
+    }
+
+    private RecordEntity post(LocalDate bookingDate, long value) {
+        RecordEntity recordEntity = RecordEntity.builder()
+                .fromAccountEntity(revenue)
+                .toAccountEntity(bank)
+                .value(value)
+                .bookingDate(Date.valueOf(bookingDate))
+                .build();
+        entityManager.persist(recordEntity);
+        entityManager.flush();
+        return recordEntity;
+    }
+
+    private BalanceSnapshotEntity snapshot(AccountEntity accountEntity, LocalDate periodEnd) {
+        BalanceSnapshotEntity snapshot = balanceSnapshotRepository
+                .findFirstByAccountIdAndPeriodEndLessThanEqualOrderByPeriodEndDesc(accountEntity.getId(), Date.valueOf(periodEnd))
+                .orElseThrow();
+        Assertions.assertEquals(Date.valueOf(periodEnd), snapshot.getPeriodEnd());
+        return snapshot;
+    }
+
+    private void assertBalance(AccountEntity accountEntity, LocalDate asOf, long expectedMinorUnits) {
+        AccountBalance balance = balanceSnapshotService.getBalanceAsOf(accountEntity.getId(), asOf);
+        Assertions.assertEquals(0, BigDecimal.valueOf(expectedMinorUnits, 2).compareTo(balance.balance()),
+                "Unexpected balance " + balance + " as of " + asOf);
+    }
+}
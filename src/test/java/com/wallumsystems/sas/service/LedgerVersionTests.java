@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.repository.AccountRepository;
+import com.wallumsystems.sas.repository.LedgerVersionRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+// the transactions have to commit, otherwise the other instance can not see them
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(LedgerVersion.class)
+class LedgerVersionTests {
+
+    @Autowired
+    private LedgerVersionRepository ledgerVersionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LedgerVersion ledgerVersion;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void instancesShareTheVersionOfTheDatabase() {
+        LedgerVersion writingInstance = new LedgerVersion(ledgerVersionRepository, jdbcTemplate, transactionManager);
+        LedgerVersion readingInstance = new LedgerVersion(ledgerVersionRepository, jdbcTemplate, transactionManager);
+        long before = readingInstance.current();
+
+        // several changes in one transaction count once
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            writingInstance.increment();
+            writingInstance.increment();
+        });
+
+        Assertions.assertEquals(before + 1, readingInstance.current());
+        Assertions.assertEquals(writingInstance.eTag(readingInstance.current(), "v"),
+                readingInstance.eTag(writingInstance.current(), "v"));
+    }
+
+    @Test
+    void rolledBackChangesKeepTheVersion() {
+        ledgerVersion.increment();
+        long before = ledgerVersion.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ledgerVersion.increment();
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals(before, ledgerVersion.current());
+    }
+
+    // the account is only inserted by the flush of the commit, after the beforeCommit callbacks have run
+    @Test
+    void accountsCreatedInTheCommitFlushCountOnce() {
+        long before = ledgerVersion.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.persist(AccountEntity.builder().name("created at commit").build());
+            ledgerVersion.increment();
+        });
+        Assertions.assertEquals(before + 1, ledgerVersion.current());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                accountRepository.findAll().forEach(accountEntity -> accountEntity.setName(accountEntity.getName() + " renamed")));
+        Assertions.assertEquals(before + 2, ledgerVersion.current());
+        accountRepository.deleteAll();
+    }
+}
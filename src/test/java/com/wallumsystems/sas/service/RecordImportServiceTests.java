@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.ImportStatus;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.exception.AccountEntityNotFoundException;
+import com.wallumsystems.sas.exception.ImportCapacityExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.validation.Validation;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class RecordImportServiceTests {
+
+    private static final long BANK = 1L;
+
+    private static final long RENT = 2L;
+
+    private static final long OTHER = 3L;
+
+    private final RecordService recordService = Mockito.mock(RecordService.class);
+
+    private final AccountCache accountCache = Mockito.mock(AccountCache.class);
+
+    private final ImportProperties importProperties = new ImportProperties();
+
+    private final ConcurrentLinkedQueue<RecordEntity> postedRecords = new ConcurrentLinkedQueue<>();
+
+    private RecordImportService recordImportService;
+
+    @BeforeEach
+    void setUp() {
+        for (long id : List.of(BANK, RENT, OTHER))
+            Mockito.when(accountCache.findById(id))
+                    .thenReturn(Optional.of(AccountEntity.builder().id(id).name("account " + id).build()));
+        Mockito.when(accountCache.findById(99L)).thenReturn(Optional.empty());
+        ImportProperties.Rule rent = new ImportProperties.Rule();
+        rent.setPattern("(?i)rent");
+        rent.setAccountId(RENT);
+        importProperties.setRules(List.of(rent));
+        importProperties.setDefaultAccountId(OTHER);
+        importProperties.setBankAccountId(BANK);
+        importProperties.setBatchSize(100);
+        importProperties.setQueueCapacity(2);
+        importProperties.setParallelism(2);
+        importProperties.setMaxConcurrentImports(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (recordImportService != null)
+            recordImportService.shutdown();
+    }
+
+    @Test
+    void validLinesArePostedAndInvalidLinesReported() throws Exception {
+        Mockito.doAnswer(invocation -> post(invocation.getArgument(0))).when(recordService).postRecords(ArgumentMatchers.any());
+        recordImportService = newRecordImportService();
+
+        ImportStatus status = await(recordImportService.startImport(csv("""
+                Date;Amount;Description;Counterparty
+                01.02.2022;-1.250,50;"Rent; February";Landlord
+                02.02.2022;3,00;Interest;Bank
+                32.01.2022;1,00;Invalid date;Bank
+                03.02.2022;abc;Invalid amount;Bank
+                04.02.2022;1,00
+                """), null));
+
+        Assertions.assertEquals(ImportStatus.State.COMPLETED, status.state());
+        Assertions.assertEquals(5, status.linesRead());
+        Assertions.assertEquals(2, status.linesImported());
+        Assertions.assertEquals(3, status.linesRejected());
+        Assertions.assertEquals(List.of(4L, 5L, 6L),
+                status.rejects().stream().map(ImportStatus.Reject::line).sorted().toList());
+
+        RecordEntity rent = postedRecords.stream().filter(record -> record.getValue() == 125050L).findFirst().orElseThrow();
+        Assertions.assertEquals(BANK, rent.getFromAccountEntity().getId());
+        Assertions.assertEquals(RENT, rent.getToAccountEntity().getId());
+        Assertions.assertEquals("Landlord: Rent; February", rent.getDescription());
+        RecordEntity interest = postedRecords.stream().filter(record -> record.getValue() == 300L).findFirst().orElseThrow();
+        Assertions.assertEquals(OTHER, interest.getFromAccountEntity().getId());
+        Assertions.assertEquals(BANK, interest.getToAccountEntity().getId());
+    }
+
+    @Test
+    void missingOrUnknownBankAccountsAreRejectedUpFront() {
+        importProperties.setBankAccountId(null);
+        recordImportService = newRecordImportService();
+
+        Assertions.assertThrows(AccountEntityNotFoundException.class,
+                () -> recordImportService.startImport(csv("01.02.2022;1,00;a;b\n"), null));
+        Assertions.assertThrows(AccountEntityNotFoundException.class,
+                () -> recordImportService.startImport(csv("01.02.2022;1,00;a;b\n"), 99L));
+        Mockito.verifyNoInteractions(recordService);
+    }
+
+    @Test
+    void concurrentImportsAreLimited() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            Assertions.assertTrue(release.await(10, TimeUnit.SECONDS));
+            return post(invocation.getArgument(0));
+        }).when(recordService).postRecords(ArgumentMatchers.any());
+        recordImportService = newRecordImportService();
+
+        ImportStatus first = recordImportService.startImport(csv("Header\n01.02.2022;1,00;a;b\n"), null);
+        Assertions.assertThrows(ImportCapacityExceededException.class,
+                () -> recordImportService.startImport(csv("Header\n01.02.2022;1,00;a;b\n"), null));
+
+        release.countDown();
+        Assertions.assertEquals(ImportStatus.State.COMPLETED, await(first).state());
+        Assertions.assertEquals(ImportStatus.State.COMPLETED,
+                await(recordImportService.startImport(csv("Header\n01.02.2022;1,00;a;b\n"), null)).state());
+    }
+
+    // the lines between the reader and the writer are limited by the queues, not by the size of the file
+    @Test
+    void linesInFlightAreBoundedByTheQueues() throws Exception {
+        int lines = 100_000;
+        StringBuilder content = new StringBuilder("Date;Amount;Description;Counterparty\n");
+        for (int i = 0; i < lines; i++)
+            content.append("01.02.2022;").append(i % 1000).append(",00;Line ").append(i).append(";Shop\n");
+        AtomicLong maximumInFlight = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        String[] jobId = new String[1];
+        Mockito.doAnswer(invocation -> {
+            List<RecordEntity> batch = invocation.getArgument(0);
+            Assertions.assertTrue(batch.size() <= 2 * importProperties.getBatchSize(), "Unbounded batch of " + batch.size());
+            // give the reader time to run ahead as far as the queues let it
+            Thread.sleep(1);
+            synchronized (jobId) {
+                if (jobId[0] != null)
+                    maximumInFlight.accumulateAndGet(
+                            recordImportService.getStatus(jobId[0]).orElseThrow().linesRead() - written.get(), Math::max);
+            }
+            written.addAndGet(batch.size());
+            return null;
+        }).when(recordService).postRecords(ArgumentMatchers.any());
+        recordImportService = newRecordImportService();
+
+        ImportStatus started = recordImportService.startImport(csv(content.toString()), null);
+        synchronized (jobId) {
+            jobId[0] = started.id();
+        }
+        ImportStatus status = await(started);
+
+        Assertions.assertEquals(lines, status.linesImported());
+        // each queue holds its capacity in chunks, every validator one chunk, the reader and the writer one batch each
+        long bound = (2L * importProperties.getQueueCapacity() + 2L * importProperties.getParallelism() + 4)
+                * importProperties.getBatchSize();
+        Assertions.assertTrue(maximumInFlight.get() > 0);
+        Assertions.assertTrue(maximumInFlight.get() <= bound,
+                maximumInFlight.get() + " lines in flight, at most " + bound + " expected");
+    }
+
+    private RecordImportService newRecordImportService() {
+        return new RecordImportService(recordService, new EntityToComponentConverter(accountCache), accountCache,
+                Validation.buildDefaultValidatorFactory().getValidator(), importProperties);
+    }
+
+    private Void post(List<RecordEntity> batch) {
+        postedRecords.addAll(batch);
+        return null;
+    }
+
+    private ImportStatus await(ImportStatus started) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        ImportStatus status = started;
+        while (status.state() == ImportStatus.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = recordImportService.getStatus(started.id()).orElseThrow();
+        }
+        Assertions.assertNotEquals(ImportStatus.State.RUNNING, status.state(), "The import did not finish");
+        return status;
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "statement.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
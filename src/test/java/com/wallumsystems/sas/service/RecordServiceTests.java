@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.component.AccountBalance;
+import com.wallumsystems.sas.entity.AccountEntity;
+import com.wallumsystems.sas.entity.RecordEntity;
+import com.wallumsystems.sas.entity.RecurringRecordEntity;
+import com.wallumsystems.sas.entity.TaxRecordEntity;
+import com.wallumsystems.sas.exception.RecordAlreadyRevertedException;
+import com.wallumsystems.sas.exception.RecordNotRevertibleException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+// the balance upsert is MySQL syntax, so H2 has to run in its MySQL mode
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:record-service;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RecordService.class, AccountBalanceService.class, BalanceSnapshotService.class, LedgerVersion.class})
+class RecordServiceTests {
+
+    @Autowired
+    private RecordService recordService;
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AccountEntity fromAccount;
+
+    private AccountEntity toAccount;
+
+    @BeforeEach
+    void createAccounts() {
+        fromAccount = AccountEntity.builder().name("from").build();
+        toAccount = AccountEntity.builder().name("to").build();
+        entityManager.persist(fromAccount);
+        entityManager.persist(toAccount);
+    }
+
+    @Test
+    void secondRevertIsRejectedAndLeavesTheBalanceAlone() throws Exception {
+        RecordEntity recordEntity = recordService.postRecord(recordWithTax());
+        entityManager.clear();
+
+        RecordEntity revertedRecord = recordService.revertRecord(recordEntity.getId()).orElseThrow();
+        Long revertingRecordId = revertedRecord.getRevertingRecord().getId();
+        entityManager.clear();
+
+        Assertions.assertThrows(RecordAlreadyRevertedException.class, () -> recordService.revertRecord(recordEntity.getId()));
+        entityManager.clear();
+
+        RecordEntity reloaded = entityManager.find(RecordEntity.class, recordEntity.getId());
+        Assertions.assertEquals(revertingRecordId, reloaded.getRevertingRecord().getId(), "Reverting record was replaced");
+        assertBalance(toAccount, BigDecimal.ZERO);
+        assertBalance(fromAccount, BigDecimal.ZERO);
+        Assertions.assertTrue(accountBalanceService.verify().isEmpty(), "Balances drifted from the records");
+    }
+
+    @Test
+    void taxAndRevertingRecordsAreNotRevertible() throws Exception {
+        RecordEntity recordEntity = recordService.postRecord(recordWithTax());
+        Long taxRecordId = recordEntity.getTaxRecord().getId();
+        RecordEntity revertedRecord = recordService.revertRecord(recordEntity.getId()).orElseThrow();
+        Long revertingRecordId = revertedRecord.getRevertingRecord().getId();
+        entityManager.clear();
+
+        Assertions.assertThrows(RecordNotRevertibleException.class, () -> recordService.revertRecord(taxRecordId));
+        Assertions.assertThrows(RecordNotRevertibleException.class, () -> recordService.revertRecord(revertingRecordId));
+        Assertions.assertTrue(recordService.revertRecord(Long.MAX_VALUE).isEmpty());
+    }
+
+    // journal mode answers a revert with these checks before the event is appended
+    @Test
+    void revertibleRecordsAreFoundWithoutReverting() throws Exception {
+        RecordEntity recordEntity = recordService.postRecord(recordWithTax());
+        Long taxRecordId = recordEntity.getTaxRecord().getId();
+        entityManager.clear();
+
+        Assertions.assertEquals(recordEntity.getId(), recordService.findRevertible(recordEntity.getId()).orElseThrow().getId());
+        Assertions.assertThrows(RecordNotRevertibleException.class, () -> recordService.findRevertible(taxRecordId));
+        Assertions.assertTrue(recordService.findRevertible(Long.MAX_VALUE).isEmpty());
+
+        recordService.revertRecord(recordEntity.getId());
+        entityManager.clear();
+        Assertions.assertThrows(RecordAlreadyRevertedException.class, () -> recordService.findRevertible(recordEntity.getId()));
+    }
+
+    @Test
+    void recurringTemplatesDoNotDriftTheBalances() throws Exception {
+        entityManager.persist(RecurringRecordEntity.builder()
+                .description("rent")
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(50000L)
+                .bookingDate(Date.valueOf(LocalDate.of(2022, 1, 1)))
+                .startDate(Date.valueOf(LocalDate.of(2022, 1, 1)))
+                .build());
+        recordService.postRecord(recordWithTax());
+        entityManager.flush();
+
+        Assertions.assertTrue(accountBalanceService.verify().isEmpty(), "Template counted as a booking");
+        Assertions.assertTrue(accountBalanceService.rebuild().isEmpty());
+        assertBalance(toAccount, new BigDecimal("119.00"));
+    }
+
+    // callers inside a transaction keep working with their entities, only the bulk chunks are detached
+    @Test
+    void postedRecordsStayManaged() throws Exception {
+        RecordEntity recordEntity = recordWithTax();
+        recordService.postRecords(List.of(recordEntity));
+
+        Assertions.assertTrue(entityManager.contains(recordEntity));
+        Assertions.assertTrue(entityManager.contains(recordEntity.getTaxRecord()));
+        Assertions.assertTrue(entityManager.contains(fromAccount));
+        recordService.revertRecords(List.of(recordEntity.getId()));
+        Assertions.assertTrue(entityManager.contains(recordEntity));
+    }
+
+    private void assertBalance(AccountEntity accountEntity, BigDecimal expected) {
+        AccountBalance balance = accountBalanceService.getBalance(accountEntity.getId());
+        Assertions.assertEquals(0, expected.compareTo(balance.balance()), "Unexpected balance " + balance);
+    }
+
+    private RecordEntity recordWithTax() {
+        Date bookingDate = Date.valueOf(LocalDate.of(2022, 1, 31));
+        TaxRecordEntity taxRecord = TaxRecordEntity.builder()
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(1900L)
+                .bookingDate(bookingDate)
+                .build();
+        RecordEntity recordEntity = RecordEntity.builder()
+                .description("record")
+                .fromAccountEntity(fromAccount)
+                .toAccountEntity(toAccount)
+                .value(10000L)
+                .bookingDate(bookingDate)
+                .taxRecord(taxRecord)
+                .build();
+        taxRecord.setRecordEntity(recordEntity);
+        return recordEntity;
+    }
+}
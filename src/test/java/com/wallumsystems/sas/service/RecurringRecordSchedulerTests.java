@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.service;
+
+import com.wallumsystems.sas.repository.RecurringRecordRepository;
+import com.wallumsystems.sas.repository.RecurringSchedule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+
+class RecurringRecordSchedulerTests {
+
+    private static final LocalDate TODAY = LocalDate.of(2022, 3, 1);
+
+    private final RecurringRecordRepository recurringRecordRepository = Mockito.mock(RecurringRecordRepository.class);
+
+    private final RecurringRecordService recurringRecordService = Mockito.mock(RecurringRecordService.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RecurringRecordScheduler scheduler =
+            new RecurringRecordScheduler(recurringRecordRepository, recurringRecordService, meterRegistry, 10, 2);
+
+    @Test
+    void onlyDueRecurringRecordsAreMaterializedInBatches() {
+        Mockito.when(recurringRecordRepository.findSchedules()).thenReturn(List.of(
+                schedule(1L, LocalDate.of(2022, 2, 1), 7, null),
+                schedule(2L, LocalDate.of(2022, 2, 1), 7, LocalDate.of(2022, 2, 22)),
+                // next occurrence is tomorrow
+                schedule(3L, LocalDate.of(2022, 2, 1), 7, LocalDate.of(2022, 2, 23)),
+                // a zero interval never recurs
+                schedule(4L, LocalDate.of(2022, 2, 1), 0, null),
+                schedule(5L, LocalDate.of(2022, 2, 28), 1, null)));
+        // the first batch is caught up in full batches until fewer records than the batch size are left
+        Mockito.when(recurringRecordService.materialize(List.of(1L, 2L), TODAY, 10)).thenReturn(10, 3);
+        Mockito.when(recurringRecordService.materialize(List.of(5L), TODAY, 10)).thenReturn(1);
+
+        scheduler.materializeDueRecords(TODAY);
+
+        Mockito.verify(recurringRecordService, Mockito.times(2)).materialize(List.of(1L, 2L), TODAY, 10);
+        Mockito.verify(recurringRecordService).materialize(List.of(5L), TODAY, 10);
+        Mockito.verifyNoMoreInteractions(recurringRecordService);
+        Assertions.assertEquals(14, meterRegistry.get("sas.recurring.materialized").counter().count());
+    }
+
+    @Test
+    void lagIsKeptUntilTheNextRun() {
+        Mockito.when(recurringRecordRepository.findSchedules())
+                .thenReturn(List.of(schedule(1L, LocalDate.of(2022, 2, 1), 7, null)))
+                .thenReturn(List.of(schedule(1L, LocalDate.of(2022, 2, 1), 7, LocalDate.of(2022, 3, 1))));
+
+        scheduler.materializeDueRecords(TODAY);
+        // the oldest due occurrence was on 2022-02-08
+        Assertions.assertEquals(21, lagDays());
+
+        scheduler.materializeDueRecords(TODAY);
+        Assertions.assertEquals(0, lagDays());
+    }
+
+    @Test
+    void intervalDaysDoNotDependOnTheTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (String zone : List.of("UTC", "Europe/Berlin", "America/New_York", "Pacific/Auckland")) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                // the jdbc driver reads the stored interval in the default zone
+                Timestamp sevenDays = Timestamp.valueOf(LocalDateTime.of(1970, 1, 8, 0, 0));
+                Assertions.assertEquals(7, RecurringRecordService.intervalDays(sevenDays), zone);
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    private double lagDays() {
+        return meterRegistry.get("sas.recurring.lag.days").gauge().value();
+    }
+
+    private static RecurringSchedule schedule(Long id, LocalDate startDate, int intervalDays, LocalDate materializedUntil) {
+        return new RecurringSchedule(id, Date.valueOf(startDate),
+                Timestamp.valueOf(LocalDate.EPOCH.plusDays(intervalDays).atStartOfDay()),
+                materializedUntil == null ? null : Date.valueOf(materializedUntil));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 WalluM-Systems UG (haftungsbeschränkt)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ * OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.wallumsystems.sas.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+class CsvReaderTests {
+
+    @Test
+    void quotedFieldsKeepDelimitersQuotesAndLineBreaks() throws IOException {
+        List<List<String>> rows = readAll("01.02.2022;-12,50;\"Rent; February\";\"Landlord \"\"Smith\"\"\"\n"
+                + "02.02.2022;3,00;\"two\nlines\";\n");
+
+        Assertions.assertEquals(List.of(
+                List.of("01.02.2022", "-12,50", "Rent; February", "Landlord \"Smith\""),
+                List.of("02.02.2022", "3,00", "two\nlines", "")), rows);
+    }
+
+    @Test
+    void lineEndingsAreNormalized() throws IOException {
+        Assertions.assertEquals(List.of(List.of("a", "b"), List.of(""), List.of("c")),
+                readAll("a;b\r\n\r\nc"));
+    }
+
+    @Test
+    void unterminatedQuotesAreReported() {
+        Assertions.assertThrows(IOException.class, () -> readAll("a;\"b\n"));
+    }
+
+    private static List<List<String>> readAll(String content) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvReader csvReader = new CsvReader(new StringReader(content), ';')) {
+            List<String> row;
+            while ((row = csvReader.readRow()) != null)
+                rows.add(row);
+        }
+        return rows;
+    }
+}